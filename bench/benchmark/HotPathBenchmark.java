@@ -0,0 +1,241 @@
+package benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import code.Car;
+import code.CrossRoad;
+import code.Difficulty;
+import code.Graph;
+import code.MySAXParser;
+import code.SceneManager;
+import code.SimulationClock;
+import code.Train;
+
+/**
+ * Microbenchmarks of the hot paths of the simulation. Each benchmark is run during a few warm-up iterations, then during a few measured iterations of
+ * a fixed time. As a JMH setup of level Iteration would, the state modified by a benchmark (scene, vehicles) is created again before each iteration,
+ * outside the measure, so that an iteration never measures the state left by another benchmark or by a previous iteration. The throughput
+ * (operations per second) and the allocation rate (bytes per operation and MB per second, measured on the current thread) of the measured iterations
+ * are printed.<br>
+ * Usage: HotPathBenchmark [name filter] [iteration time in ms]
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class HotPathBenchmark {
+	/**
+	 * A benchmark: its state is prepared by setup() before each iteration, then run() is called as many times as possible during the iteration.
+	 *
+	 * @author NOVAK Johann
+	 * 		johann.novak@utbm.fr
+	 * @author SCHULZ Quentin
+	 * 		quentin.schulz@utbm.fr
+	 *
+	 * @version v0.1
+	 */
+	private static abstract class Benchmark {
+		/**
+		 * Prepare the state of the benchmark (not measured). By default, the state is never modified and nothing is done.
+		 */
+		void setup() {}
+		/**
+		 * Run one operation of the benchmark.
+		 */
+		abstract void run();
+	}
+	//Map used by the benchmarks of the simulation.
+	private static final String MAP = "./map/bigmap.xml";
+	//Number of ticks run before the benchmarks of the simulation (to have vehicles on the map).
+	private static final int TICKS_BEFORE_MEASURE = 3000;
+	private static final int WARMUP_ITERATIONS = 3, MEASURE_ITERATIONS = 5;
+	//Result of the benchmarks (it prevents the JIT from removing the benchmarked code).
+	private static volatile long sink;
+
+	public static void main(String[] args) throws Exception
+	{
+		System.setProperty("java.awt.headless", "true");
+		String filter = (args.length>0)?args[0]:"";
+		long iterationMs = (args.length>1)?Long.parseLong(args[1]):1000;
+		Map<String, Benchmark> benchmarks = createBenchmarks();
+		System.out.println(String.format("%-40s %15s %15s %12s", "Benchmark", "ops/s", "B/op", "MB/s"));
+		for (Map.Entry<String, Benchmark> b : benchmarks.entrySet())
+			if (b.getKey().contains(filter))
+				measure(b.getKey(), b.getValue(), iterationMs);
+	}
+	/**
+	 * Create all benchmarks by name.
+	 * @return all benchmarks by name (in the order they are run).
+	 * @throws Exception
+	 */
+	private static Map<String, Benchmark> createBenchmarks() throws Exception
+	{
+		Map<String, Benchmark> benchmarks = new LinkedHashMap<String, Benchmark>();
+		final MySAXParser map = parse(new File(MAP));
+		final List<CrossRoad> crossRoads = map.getCrossRoads();
+		final Graph graph = new Graph(crossRoads, map.getRoads());
+		final File[] maps = new File("./map/").listFiles();
+
+		benchmarks.put("SceneManager.step", new Benchmark() {
+			private SceneManager scene;
+			//Each iteration starts from the same state of the game.
+			void setup() { scene = createScene(); }
+			void run() { scene.step(); sink += scene.getTrains().size(); }
+		});
+		benchmarks.put("SceneManager.checkCollision", new Benchmark() {
+			private SceneManager scene;
+			//A scene of its own: the one of SceneManager.step has moved.
+			void setup() { scene = createScene(); }
+			void run() { scene.checkCollision(); sink += scene.getNbOfDeaths(); }
+		});
+		benchmarks.put("Car.intersectWith", new Benchmark() {
+			private Car[] first, second;
+			/*Fresh vehicles, then the pairs are tested once (not measured): the vehicles which crash or join a train do it now. The measured pairs
+			 * are the ones whose vehicles are still in a train, so the work of an operation does not decrease during the iteration.*/
+			void setup() {
+				List<Car> cars = getCars(createScene());
+				List<Car[]> pairs = new ArrayList<Car[]>();
+				for (Car c1 : cars)
+					for (Car c2 : cars)
+						if (c1!=c2 && c1.getTrain()!=null && c2.getTrain()!=null)
+							c1.intersectWith(c2);
+				for (Car c1 : cars)
+					for (Car c2 : cars)
+						if (c1!=c2 && c1.getTrain()!=null && c2.getTrain()!=null)
+							pairs.add(new Car[]{c1, c2});
+				first = new Car[pairs.size()];
+				second = new Car[pairs.size()];
+				for (int i=0; i<pairs.size(); ++i)
+				{
+					first[i] = pairs.get(i)[0];
+					second[i] = pairs.get(i)[1];
+				}
+			}
+			void run() {
+				for (int i=0; i<first.length; ++i)
+					if (first[i].intersectWith(second[i]))
+						++sink;
+			}
+		});
+		benchmarks.put("Car.updatePosition", new Benchmark() {
+			private List<Car> cars;
+			void setup() { cars = getCars(createScene()); }
+			//A time of 0 ms: the polygon is created again but the vehicles do not move.
+			void run() {
+				for (Car c : cars)
+					c.updatePosition(0);
+				sink += cars.size();
+			}
+		});
+		benchmarks.put("Graph.<init>", new Benchmark() {
+			void run() { sink += new Graph(crossRoads, map.getRoads()).hashCode(); }
+		});
+		benchmarks.put("Graph.getNextIntermediate", new Benchmark() {
+			void run() {
+				for (CrossRoad start : crossRoads)
+					for (CrossRoad end : crossRoads)
+						if (graph.getNextIntermediate(start, end)!=null)
+							++sink;
+			}
+		});
+		benchmarks.put("Displayable.getAngle", new Benchmark() {
+			private List<Car> cars;
+			void setup() { cars = getCars(createScene()); }
+			void run() {
+				double angle=0;
+				for (Car c : cars)
+					angle += c.getAngle();
+				sink += (long)angle;
+			}
+		});
+		benchmarks.put("MySAXParser.parse", new Benchmark() {
+			void run() {
+				for (File f : maps)
+					if (f.getName().endsWith(".xml"))
+						sink += parse(f).getRoads().size();
+			}
+		});
+		return benchmarks;
+	}
+	/**
+	 * Return the vehicles of a scene.
+	 * @param scene The scene.
+	 * @return the vehicles of all trains of the scene.
+	 */
+	private static List<Car> getCars(SceneManager scene)
+	{
+		List<Car> cars = new ArrayList<Car>();
+		for (Train t : scene.getTrains())
+			cars.addAll(t.getCars());
+		return cars;
+	}
+	/**
+	 * Create a scene of the benchmarked map and run it until there are vehicles on the map.
+	 * @return the scene.
+	 */
+	private static SceneManager createScene()
+	{
+		SceneManager scene = new SceneManager(new File(MAP), Difficulty.HARDCORE, 42, SimulationClock.DEFAULT_TICK_RATE);
+		for (int i=0; i<TICKS_BEFORE_MEASURE; ++i)
+			scene.step();
+		return scene;
+	}
+	/**
+	 * Parse the XML file of a map.
+	 * @param f The XML file of the map.
+	 * @return the parser containing the crossroads and roads of the map.
+	 */
+	private static MySAXParser parse(File f)
+	{
+		try {
+			SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+			MySAXParser handler = new MySAXParser();
+			parser.parse(f, handler);
+			return handler;
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot parse "+f, e);
+		}
+	}
+	/**
+	 * Run the warm-up iterations then the measured iterations of the benchmark passed by parameter and print its results. The state of the benchmark
+	 * is prepared before each iteration, out of the measure.
+	 * @param name The name of the benchmark.
+	 * @param benchmark The benchmark.
+	 * @param iterationMs The duration of an iteration (in ms).
+	 */
+	private static void measure(String name, Benchmark benchmark, long iterationMs)
+	{
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long ops=0, bytes=0, nanos=0, start, end, allocated;
+		for (int iteration=0; iteration<WARMUP_ITERATIONS+MEASURE_ITERATIONS; ++iteration)
+		{
+			benchmark.setup();
+			long iterationOps=0;
+			allocated = threads.getThreadAllocatedBytes(thread);
+			start = System.nanoTime();
+			end = start+iterationMs*1000000;
+			do{
+				benchmark.run();
+				++iterationOps;
+			}while (System.nanoTime()<end);
+			if (iteration<WARMUP_ITERATIONS)
+				continue;
+			nanos += System.nanoTime()-start;
+			bytes += threads.getThreadAllocatedBytes(thread)-allocated;
+			ops += iterationOps;
+		}
+		double seconds = nanos/1e9;
+		System.out.println(String.format("%-40s %15.1f %15.1f %12.2f", name, ops/seconds, bytes/(double)ops, bytes/seconds/1e6));
+	}
+}
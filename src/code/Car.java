@@ -5,7 +5,6 @@ import interfaces.CarObservable;
 import interfaces.CarObserver;
 import interfaces.Intersectable;
 
-import java.awt.Polygon;
 import java.awt.geom.Point2D;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
@@ -85,6 +84,31 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 	private long hourOfDeath = 0;
 	/*Boolean stating whether the vehicle has to quit the current train (this is set by user's interaction with the program.)*/
 	public boolean forceQuit = false;
+	/*Rank of the vehicle in the order the vehicles are tested for collision (-1 if it is not in a train of the game anymore).*/
+	private transient int collisionOrder=-1;
+	/*Identifier of the vehicle in the game, given by the SceneManager (used by the view to follow the vehicle from a tick to another).*/
+	private transient int id=-1;
+	/*Coordinates and angle of the vehicle in the last snapshot published to the view (only meaningful if published is true).*/
+	private transient boolean published=false;
+	private transient float publishedX, publishedY;
+	private transient double publishedAngle;
+	/*Road on which the vehicle drives (null if unknown, e.g. after a load, until it crosses an Intersection), rank of the vehicle in the queue of
+	 * the road (-1 if it is not in it) and distance travelled from the start of the road when the queue was sorted.*/
+	private transient Road road;
+	private transient int queueIndex=-1;
+	private transient float travelled;
+	/*Box and pairs of the vehicle in the cache of the pairs of vehicles which can intersect (null until the vehicle is put in it).*/
+	private transient PairCache.Entry pairEntry;
+	/*Grid counting the vehicles of the map for the view (null until the vehicle enters it or once it left the game) and cell of the vehicle in it.*/
+	private transient DensityGrid densityGrid;
+	private transient int densityCell;
+	/*Offsets of the corners of the polygon from the relative upper left corner, with the sine, cosine and dimensions of the image they were
+	 * computed with (a sine and a cosine both null means that they were never computed).*/
+	private transient double shapeSin, shapeCos, sinHeight, cosHeight, cosWidth, sinWidth;
+	private transient int shapeWidth, shapeHeight;
+	/*Norm of the vector of the vehicle, with the vector it was computed with.*/
+	private transient float normX, normY;
+	private transient double norm;
 	/**
 	 * Create a new vehicle with a starting and a destination cross road.
 	 * 
@@ -93,7 +117,17 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 	 * @param graph The graph of the map (needed for finding the next intermediate cross road.
 	 */
 	public Car(CrossRoad start, CrossRoad destination, Graph graph){
-		Random random = new Random();
+		this(start, destination, graph, new Random());
+	}
+	/**
+	 * Create a new vehicle with a starting and a destination cross road, whose image is chosen thanks to the random generator passed by parameter.
+	 * 
+	 * @param start The cross road from where the vehicle will start.
+	 * @param destination The cross road to where the vehicle SHOULD end (can be modified if collisions or user's interaction
+	 * @param graph The graph of the map (needed for finding the next intermediate cross road.
+	 * @param random The random generator used to chose the image of the vehicle.
+	 */
+	public Car(CrossRoad start, CrossRoad destination, Graph graph, Random random){
 		List<Intersection> itList = new ArrayList<Intersection>(start.getIntersections());
 		//Find the next cross road on the shortest path from start to destination (see Graph)
 		CrossRoad intermediate = graph.getNextIntermediate(start, destination);
@@ -116,7 +150,8 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 			if ((r=it.getRoadTo(intermediate))!=null)
 			{
 				//Found road leading to next intermediate
-				this.vector = r.getVector();
+				this.setVector(r.getVector());
+				this.road = r;
 				double temp = this.getAngle();
 				this.coordinates = new float[2];
 				/*Set X & Y coordinates*/
@@ -133,25 +168,57 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 		createPolygon();
 	}
 	/**
-	 * Create the polygon circumscribing the vehicle
+	 * Create the polygon circumscribing the vehicle. The offsets of the corners from the relative upper left corner are only computed again when
+	 * the orientation or the image of the vehicle changed, so moving the vehicle along a road only translates them. The points and the cached
+	 * bounds of the polygon are updated in place.
 	 */
 	private void createPolygon() {
-		//Reset polygon
-		((Polygon)this).reset();
+		int width=image.getWidth(), height=image.getHeight();
+		if (this.getSin()!=shapeSin || this.getCos()!=shapeCos || width!=shapeWidth || height!=shapeHeight)
+		{
+			shapeSin = this.getSin();
+			shapeCos = this.getCos();
+			shapeWidth = width;
+			shapeHeight = height;
+			sinHeight = shapeSin*height;
+			cosHeight = shapeCos*height;
+			cosWidth = shapeCos*width;
+			sinWidth = shapeSin*width;
+		}
+		if (this.xpoints.length<4)
+		{
+			this.xpoints = new int[4];
+			this.ypoints = new int[4];
+		}
+		this.npoints = 4;
 		/*The polygon is created from the RELATIVE upper left corner of the vehicle and in clockwise. Relative means that
 		 * if the vehicle is for example horizontal to the right, the upper left corner is not the one you're seeing but
-		 * the upper right corner (this is what we meant: relative to the image representing the vehicle) */
-		this.addPoint((int)this.coordinates[0], (int)this.coordinates[1]);
-		int x, y;
-		x = (int) (this.coordinates[0]-Math.sin(this.getAngle())*image.getHeight());
-		y = (int) (this.coordinates[1]+Math.cos(this.getAngle())*image.getHeight());
-		this.addPoint(x, y);
-		x = (int) (this.coordinates[0]+Math.cos(this.getAngle())*image.getWidth()-Math.sin(this.getAngle())*image.getHeight());
-		y = (int) (this.coordinates[1]+Math.sin(this.getAngle())*image.getWidth()+Math.cos(this.getAngle())*image.getHeight());
-		this.addPoint(x, y);
-		x = (int) (this.coordinates[0]+Math.cos(this.getAngle())*image.getWidth());
-		y = (int) (this.coordinates[1]+Math.sin(this.getAngle())*image.getWidth());
-		this.addPoint(x, y);
+		 * the upper right corner (this is what we meant: relative to the image representing the vehicle).
+		 * The offsets are added in the same order as when they were computed at each update (same rounding).*/
+		this.xpoints[0] = (int)this.coordinates[0];
+		this.ypoints[0] = (int)this.coordinates[1];
+		this.xpoints[1] = (int) (this.coordinates[0]-sinHeight);
+		this.ypoints[1] = (int) (this.coordinates[1]+cosHeight);
+		this.xpoints[2] = (int) (this.coordinates[0]+cosWidth-sinHeight);
+		this.ypoints[2] = (int) (this.coordinates[1]+sinWidth+cosHeight);
+		this.xpoints[3] = (int) (this.coordinates[0]+cosWidth);
+		this.ypoints[3] = (int) (this.coordinates[1]+sinWidth);
+		//Update the bounds if they were computed (Polygon computes them again only when they were reset)
+		if (this.bounds!=null)
+		{
+			int minX=xpoints[0], maxX=xpoints[0], minY=ypoints[0], maxY=ypoints[0];
+			for (int i=1; i<4; ++i)
+			{
+				minX = Math.min(minX, xpoints[i]);
+				maxX = Math.max(maxX, xpoints[i]);
+				minY = Math.min(minY, ypoints[i]);
+				maxY = Math.max(maxY, ypoints[i]);
+			}
+			this.bounds.setBounds(minX, minY, maxX-minX, maxY-minY);
+		}
+		//Move the vehicle in the grid of the density if it changed of cell
+		if (this.densityGrid!=null)
+			this.densityCell = this.densityGrid.move(this.densityCell, this.coordinates[0], this.coordinates[1]);
 	}
 	/**
 	 * Set the train the vehicle is currently attached.
@@ -235,6 +302,7 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 					temp.remove(this);
 					this.getTrain().setCars(temp);
 				}
+				this.leaveDensityGrid();
 			}
 			return;
 		}
@@ -242,7 +310,14 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 			return;
 		//The vehicle is running
 		//Compute the distance the vehicle should have done if the movement was linear (the distance between the two updates).
-		double distance = Math.sqrt(Math.pow(this.vector[0], 2)+Math.pow(this.vector[1], 2));
+		if (this.vector[0]!=normX || this.vector[1]!=normY)
+		{
+			//The norm of the vector is only computed again when the vector changed.
+			normX = this.vector[0];
+			normY = this.vector[1];
+			norm = Math.sqrt(Math.pow(this.vector[0], 2)+Math.pow(this.vector[1], 2));
+		}
+		double distance = norm;
 		try{
 			this.coordinates[0]+=this.vector[0]*this.speed.getValue()*time/distance;
 			this.coordinates[1]+=this.vector[1]*this.speed.getValue()*time/distance;
@@ -302,8 +377,9 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 		return this.train.get();
 	}
 	/**
-	 * Find if there is an intersection with an Intersectable object. There exists one if at least one of the points of the
-	 * polygon of the vehicle or the Intersectable object is contained in the polygon of the other. If there exists one, if
+	 * Find if there is an intersection with an Intersectable object. There exists one if the polygon of the vehicle overlaps the
+	 * polygon of the Intersectable object (see Displayable.overlaps()) or, if the Intersectable object is an Intersection, if its
+	 * point is contained in the polygon of the vehicle. If there exists one, if
 	 * the Intersectable object is:
 	 * <ul>
 	 * <li>itself, do nothing
@@ -325,19 +401,15 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 		//Be sure that we are not testing intersection on itself
 		if(this==inter)
 			return false;
-		/*Check that at least one of the points of the polygon of the Intersectable object is contained in the polygon 
-		 * of the vehicle.*/
-		for (Point2D.Float p : inter.getPoints())
-			if (this.contains(p))
-				b = true;
-		if(!b)
-			if (inter.getClass()==Car.class)
-				/*If it's not the case, and if the Intersectable object is a vehicle, check that at least one
-				 *  of the points of the polygon of the vehicle is contained in the polygon of the Intersectable object
-				 *  (which is a vehicle).*/ 
-				for (Point2D.Float p : this.getPoints())
-					if (((Car)inter).contains(p))
-						b = true;
+		if (inter instanceof Displayable)
+			//A vehicle or a traffic lights: check that the polygons overlap (separating axis test).
+			b = this.overlaps((Displayable)inter);
+		else
+			/*An Intersection: check that at least one of the points of the polygon of the Intersectable object is contained in the 
+			 * polygon of the vehicle.*/
+			for (int i=0; i<inter.getNbPoints() && !b; ++i)
+				if (this.contains(inter.getPointX(i), inter.getPointY(i)))
+					b = true;
 		if (!b)
 			return false;
 		if (inter.getClass()==Car.class)
@@ -355,6 +427,18 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 			pt[i]=new Point2D.Float(this.xpoints[i], this.ypoints[i]);
 		return pt;
 	}
+	@Override
+	public int getNbPoints() {
+		return this.npoints;
+	}
+	@Override
+	public float getPointX(int i) {
+		return this.xpoints[i];
+	}
+	@Override
+	public float getPointY(int i) {
+		return this.ypoints[i];
+	}
 	/**
 	 * Manage intersection with an other vehicle.
 	 * @param car The vehicle intersecting the current vehicle.
@@ -591,7 +675,8 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 			y = (float) (-this.image.getHeight()/2.f);
 			this.coordinates[0]=(float) (x*Math.cos(temp)-y*Math.sin(temp)+inter.getX());
 			this.coordinates[1]= (float) (x*Math.sin(temp)+y*Math.cos(temp)+inter.getY());
-			this.vector = r.getVector();
+			this.setVector(r.getVector());
+			this.road = r;
 			createPolygon();
 			forceQuit=false;
 			this.isTraversingTrafficLights = false;
@@ -608,7 +693,7 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 					temp = inte.getRoadTo(intermediate);
 					break;
 				}
-			if (temp!=null && temp.getAngleModuloPI()==this.getAngleModuloPI() && temp.getAngle()!=this.getAngle())
+			if (temp!=null && temp.getAxisCode()==this.getAxisCode() && temp.getDirectionCode()!=this.getDirectionCode())
 			{
 				//There exists a road to (which is parallel to the current road)
 				double xV=inter.getX(), yV=inter.getY()-1, xO=inter.getX(), yO=inter.getY(), xE, yE, a2, b2, c2, angle;
@@ -622,11 +707,8 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 					b2 = (yO-yV)*(yO-yV);
 					c2 = (xV-xE)*(xV-xE)+(yV-yE)*(yV-yE);
 					angle = Math.acos((-(c2)+a2+b2)/(2*Math.sqrt(a2)*Math.sqrt(b2)));
-					String s = Double.toString(angle);
-					s = s.substring(0, (s.length()>=15)?15:s.length());
-					angle = Double.parseDouble(s);
 					itList.add(inter);
-					if (angle==this.getAngle())
+					if (toDirectionCode(angle)==this.getDirectionCode())
 						itList.add(it);
 				}
 				//Check if one of the intersections on the road allows the vehicle to reach its destination
@@ -671,7 +753,8 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 			y = (float) (-this.image.getHeight()/2.f);
 			this.coordinates[0]=(float) (x*Math.cos(temp)-y*Math.sin(temp)+inter.getX());
 			this.coordinates[1]= (float) (x*Math.sin(temp)+y*Math.cos(temp)+inter.getY());
-			this.vector = r.getVector();
+			this.setVector(r.getVector());
+			this.road = r;
 			createPolygon();
 			this.isTraversingTrafficLights = false;
 			forceQuit=false;
@@ -685,6 +768,8 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 	 * destination or the dead-end) by deleting its head.
 	 */
 	private void delete() {
+		//The head leaves the game whatever the number of vehicles in the train
+		this.getTrain().getHead().leaveDensityGrid();
 		if (this.getTrain().hasOnlyOneCar())
 			for(CarObserver obs : this.observer)
 				obs.removeTrain(this.getTrain());
@@ -723,6 +808,156 @@ public class Car extends Displayable implements Intersectable, CarObservable{
 			}
 		}
 	}	
+	/**
+	 * Return the rank of the vehicle in the order the vehicles are tested for collision.
+	 * @return the rank of the vehicle in the order the vehicles are tested for collision (-1 if it is not in a train of the game anymore).
+	 */
+	int getCollisionOrder() {
+		return collisionOrder;
+	}
+	/**
+	 * Set the rank of the vehicle in the order the vehicles are tested for collision.
+	 * @param collisionOrder the rank of the vehicle in the order the vehicles are tested for collision.
+	 */
+	void setCollisionOrder(int collisionOrder) {
+		this.collisionOrder = collisionOrder;
+	}
+	/**
+	 * Count the vehicle in the grid of the density passed by parameter.
+	 * @param densityGrid The grid counting the vehicles of the map for the view.
+	 */
+	void setDensityGrid(DensityGrid densityGrid) {
+		this.densityGrid = densityGrid;
+		this.densityCell = densityGrid.add(this.coordinates[0], this.coordinates[1]);
+	}
+	/**
+	 * Stop counting the vehicle in the grid of the density since it leaves the game.
+	 */
+	private void leaveDensityGrid() {
+		if (this.densityGrid==null)
+			return;
+		this.densityGrid.remove(this.densityCell);
+		this.densityGrid = null;
+	}
+	/**
+	 * Return the identifier of the vehicle in the game.
+	 * @return the identifier of the vehicle in the game (-1 if it was not given yet).
+	 */
+	public int getId() {
+		return id;
+	}
+	/**
+	 * Set the identifier of the vehicle in the game.
+	 * @param id the identifier of the vehicle in the game.
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+	/**
+	 * Return whether the vehicle was already published to the view.
+	 * @return whether the vehicle was already published to the view.
+	 */
+	boolean isPublished() {
+		return published;
+	}
+	/**
+	 * Return the coordinate on X of the vehicle in the last snapshot published to the view.
+	 * @return the coordinate on X of the vehicle in the last snapshot published to the view.
+	 */
+	float getPublishedX() {
+		return publishedX;
+	}
+	/**
+	 * Return the coordinate on Y of the vehicle in the last snapshot published to the view.
+	 * @return the coordinate on Y of the vehicle in the last snapshot published to the view.
+	 */
+	float getPublishedY() {
+		return publishedY;
+	}
+	/**
+	 * Return the angle of the vehicle in the last snapshot published to the view.
+	 * @return the angle of the vehicle in the last snapshot published to the view.
+	 */
+	double getPublishedAngle() {
+		return publishedAngle;
+	}
+	/**
+	 * Remember the current coordinates and angle of the vehicle as the ones published to the view.
+	 */
+	void setPublished() {
+		this.published = true;
+		this.publishedX = this.coordinates[0];
+		this.publishedY = this.coordinates[1];
+		this.publishedAngle = this.getAngle();
+	}
+	/**
+	 * Return the road on which the vehicle drives.
+	 * @return the road on which the vehicle drives (null if it is unknown).
+	 */
+	Road getRoad() {
+		return road;
+	}
+	/**
+	 * Return the rank of the vehicle in the queue of its road.
+	 * @return the rank of the vehicle in the queue of its road (-1 if it is not in it).
+	 */
+	int getQueueIndex() {
+		return queueIndex;
+	}
+	/**
+	 * Set the rank of the vehicle in the queue of its road.
+	 * @param queueIndex the rank of the vehicle in the queue of its road (-1 if it is not in it).
+	 */
+	void setQueueIndex(int queueIndex) {
+		this.queueIndex = queueIndex;
+	}
+	/**
+	 * Return the distance travelled from the start of the road when its queue was sorted.
+	 * @return the distance travelled from the start of the road when its queue was sorted.
+	 */
+	float getTravelled() {
+		return travelled;
+	}
+	/**
+	 * Compute the distance travelled from the start of the road (the projection of the center of the vehicle on the road).
+	 * @param length The length of the road.
+	 */
+	void updateTravelled(float length) {
+		float x = (this.xpoints[0]+this.xpoints[2])/2.f-road.getStartingPoint().x, y = (this.ypoints[0]+this.ypoints[2])/2.f-road.getStartingPoint().y;
+		this.travelled = (x*road.getVector()[0]+y*road.getVector()[1])/length;
+	}
+	/**
+	 * Return the vehicle in front of the current vehicle on its road.
+	 * @return the vehicle in front of the current vehicle on its road (null if there is none or if the vehicle is not in the queue of its road).
+	 */
+	Car getLeader() {
+		if (queueIndex<0 || queueIndex+1>=road.getCars().size())
+			return null;
+		return road.getCars().get(queueIndex+1);
+	}
+	/**
+	 * Return the vehicle behind the current vehicle on its road.
+	 * @return the vehicle behind the current vehicle on its road (null if there is none or if the vehicle is not in the queue of its road).
+	 */
+	Car getFollower() {
+		if (queueIndex<=0)
+			return null;
+		return road.getCars().get(queueIndex-1);
+	}
+	/**
+	 * Return the entry of the vehicle in the cache of the pairs of vehicles which can intersect.
+	 * @return the entry of the vehicle in the cache of pairs (null if it was not put in it yet).
+	 */
+	PairCache.Entry getPairEntry() {
+		return pairEntry;
+	}
+	/**
+	 * Set the entry of the vehicle in the cache of the pairs of vehicles which can intersect.
+	 * @param pairEntry the entry of the vehicle in the cache of pairs.
+	 */
+	void setPairEntry(PairCache.Entry pairEntry) {
+		this.pairEntry = pairEntry;
+	}
 	/**
 	 * Return the Intersection which is being traversed.
 	 * @return the Intersection which is being traversed.
@@ -0,0 +1,182 @@
+package code;
+
+import java.util.Arrays;
+
+/**
+ * This class is the broadphase of the collision between vehicles. It is a uniform grid whose cells are hashed in a fixed number of buckets (a
+ * spatial hash). The size of a cell is twice the size of the largest vehicle (which is derived from the dimensions of its image and its angle) plus
+ * twice a margin, therefore two vehicles whose circumscribing rectangles enlarged by the margin overlap are always in the same cell or in two
+ * neighbor cells, even if one of them has moved by at most the margin since the grid was built.<br>
+ * The grid is rebuilt at each update thanks to a counting sort: it only uses arrays which are reused from an update to another.
+ *
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+class CollisionGrid {
+	private float cellSize=1;
+	private int mask;
+	//Index in cars of the first vehicle of each bucket (the vehicles of the bucket i are between bucketStart[i] and bucketStart[i+1]).
+	private int[] bucketStart = new int[2];
+	//Vehicles sorted by bucket.
+	private Car[] cars = new Car[0];
+	//Bucket of each vehicle passed to build() (temporary).
+	private int[] bucketOf = new int[0];
+	//Buckets of the neighbor cells of the last query.
+	private final int[] neighbors = new int[9];
+	/**
+	 * Rebuild the grid with the vehicles passed by parameter.
+	 * @param vehicles The vehicles to be put in the grid.
+	 * @param size The number of vehicles in the array.
+	 * @param margin The margin around the circumscribing rectangle of a vehicle.
+	 */
+	void build(Car[] vehicles, int size, float margin)
+	{
+		//The size of a cell is twice the size of the largest vehicle plus twice the margin.
+		float extent = 1;
+		for (int i=0; i<size; ++i)
+			extent = Math.max(extent, Math.max(width(vehicles[i]), height(vehicles[i])));
+		cellSize = 2*extent+2*margin;
+		int buckets = Integer.highestOneBit(Math.max(2*size, 1))*2;
+		mask = buckets-1;
+		if (bucketStart.length<buckets+1)
+			bucketStart = new int[buckets+1];
+		else
+			Arrays.fill(bucketStart, 0, buckets+1, 0);
+		if (cars.length<size)
+		{
+			cars = new Car[size];
+			bucketOf = new int[size];
+		}
+		//Count the vehicles in each bucket.
+		for (int i=0; i<size; ++i)
+		{
+			bucketOf[i] = bucket(cell(centerX(vehicles[i])), cell(centerY(vehicles[i])));
+			++bucketStart[bucketOf[i]+1];
+		}
+		for (int i=0; i<buckets; ++i)
+			bucketStart[i+1] += bucketStart[i];
+		//Put each vehicle in its bucket (bucketStart[i] is used as a cursor then restored).
+		for (int i=0; i<size; ++i)
+			cars[bucketStart[bucketOf[i]]++] = vehicles[i];
+		for (int i=buckets; i>0; --i)
+			bucketStart[i] = bucketStart[i-1];
+		bucketStart[0] = 0;
+		Arrays.fill(cars, size, cars.length, null);
+	}
+	/**
+	 * Find all the vehicles which are in the cell of the vehicle passed by parameter or in one of the eight neighbor cells. The result can contain
+	 * vehicles which are farther (two cells can be in the same bucket) but no vehicle twice.
+	 * @param car The vehicle whose neighbors are searched.
+	 * @param result The array where the neighbors are written (it is enlarged if needed).
+	 * @return the array containing the neighbors (result or a larger array) followed by null.
+	 */
+	Car[] query(Car car, Car[] result)
+	{
+		int x = cell(centerX(car)), y = cell(centerY(car)), n=0, count=0, b;
+		boolean found;
+		//Find the buckets of the nine cells (without duplicates).
+		for (int i=-1; i<=1; ++i)
+			for (int j=-1; j<=1; ++j)
+			{
+				b = bucket(x+i, y+j);
+				found = false;
+				for (int k=0; k<n && !found; ++k)
+					found = neighbors[k]==b;
+				if (!found)
+					neighbors[n++] = b;
+			}
+		for (int k=0; k<n; ++k)
+			count += bucketStart[neighbors[k]+1]-bucketStart[neighbors[k]];
+		if (result.length<count+1)
+			result = new Car[Math.max(count+1, 2*result.length)];
+		count = 0;
+		for (int k=0; k<n; ++k)
+			for (int i=bucketStart[neighbors[k]]; i<bucketStart[neighbors[k]+1]; ++i)
+				result[count++] = cars[i];
+		result[count] = null;
+		return result;
+	}
+	/**
+	 * Return the index of the cell containing the coordinate passed by parameter.
+	 * @param coordinate The coordinate (on X or Y).
+	 * @return the index of the cell containing the coordinate passed by parameter.
+	 */
+	private int cell(float coordinate)
+	{
+		return (int)Math.floor(coordinate/cellSize);
+	}
+	/**
+	 * Return the bucket of the cell passed by parameter.
+	 * @param x The index of the cell on X.
+	 * @param y The index of the cell on Y.
+	 * @return the bucket of the cell passed by parameter.
+	 */
+	private int bucket(int x, int y)
+	{
+		return ((x*73856093)^(y*19349663))&mask;
+	}
+	/**
+	 * Return the X coordinate of the center of the circumscribing rectangle of the vehicle.
+	 * @param car The vehicle.
+	 * @return the X coordinate of the center of the circumscribing rectangle of the vehicle.
+	 */
+	private static float centerX(Car car)
+	{
+		int min=car.xpoints[0], max=car.xpoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			min = Math.min(min, car.xpoints[i]);
+			max = Math.max(max, car.xpoints[i]);
+		}
+		return (min+max)/2.f;
+	}
+	/**
+	 * Return the Y coordinate of the center of the circumscribing rectangle of the vehicle.
+	 * @param car The vehicle.
+	 * @return the Y coordinate of the center of the circumscribing rectangle of the vehicle.
+	 */
+	private static float centerY(Car car)
+	{
+		int min=car.ypoints[0], max=car.ypoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			min = Math.min(min, car.ypoints[i]);
+			max = Math.max(max, car.ypoints[i]);
+		}
+		return (min+max)/2.f;
+	}
+	/**
+	 * Return the width of the circumscribing rectangle of the vehicle.
+	 * @param car The vehicle.
+	 * @return the width of the circumscribing rectangle of the vehicle.
+	 */
+	private static float width(Car car)
+	{
+		int min=car.xpoints[0], max=car.xpoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			min = Math.min(min, car.xpoints[i]);
+			max = Math.max(max, car.xpoints[i]);
+		}
+		return max-min;
+	}
+	/**
+	 * Return the height of the circumscribing rectangle of the vehicle.
+	 * @param car The vehicle.
+	 * @return the height of the circumscribing rectangle of the vehicle.
+	 */
+	private static float height(Car car)
+	{
+		int min=car.ypoints[0], max=car.ypoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			min = Math.min(min, car.ypoints[i]);
+			max = Math.max(max, car.ypoints[i]);
+		}
+		return max-min;
+	}
+}
@@ -29,6 +29,8 @@ public class CrossRoad extends Displayable{
 	private boolean isFinal=true;
 	//Has the crossroad only exiting roads?
 	private boolean isSource=true;
+	//Index of the crossroad in the graph of the map.
+	private int index=-1;
 	/**
 	 * Initialize the crossroad object with the name and coordinates passed by parameter and the image.
 	 * @param name The name of the crossroad (will be used as an ID).
@@ -48,6 +50,20 @@ public class CrossRoad extends Displayable{
 	public String getName() {
 		return name;
 	}
+	/**
+	 * Return the index of the crossroad in the graph of the map.
+	 * @return the index of the crossroad in the graph of the map (-1 if not in a graph).
+	 */
+	public int getIndex() {
+		return index;
+	}
+	/**
+	 * Set the index of the crossroad in the graph of the map.
+	 * @param index the index of the crossroad in the graph of the map.
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
 	/**
 	 * Return the list of roads contained in the crossroad.
 	 * @return the list of roads contained in the crossroad.
@@ -202,7 +218,7 @@ public class CrossRoad extends Displayable{
 					for (int i=1; i<8; i+=2)
 					{
 						//Check if the roads are parallels or not.
-						if (this.roads[i]!=null && this.roads[i].getAngleModuloPI()!=this.roads[j].getAngleModuloPI())
+						if (this.roads[i]!=null && this.roads[i].getAxisCode()!=this.roads[j].getAxisCode())
 						{
 							temp=new Intersection(this.roads[j], this.roads[i], this);
 							while(it.hasNext() && !equal)
@@ -219,7 +235,7 @@ public class CrossRoad extends Displayable{
 								this.intersections.add(temp);
 							equal=false;
 						}
-						else if (this.roads[i]!=null && this.roads[i].getAngleModuloPI()==this.roads[j].getAngleModuloPI() && (j+1)%8!=i)
+						else if (this.roads[i]!=null && this.roads[i].getAxisCode()==this.roads[j].getAxisCode() && (j+1)%8!=i)
 							/*If the roads are parallels but are on the opposite side of the crossroad (a possible exiting road
 							 * considering the entering road), add an intersection*/
 							this.intersections.add(new Intersection(this.roads[i].getStartingPoint(), this.roads[i], false, this));
@@ -0,0 +1,119 @@
+package code;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class counts the vehicles in each cell of a uniform grid covering the map, for the view. The counts are updated incrementally: each vehicle
+ * remembers its cell and modifies the counts itself when it enters the grid, changes of cell or leaves the game. Since the vehicles may move in
+ * parallel, the counts are atomic.
+ *
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+class DensityGrid {
+	private final int cellSize, columns, rows;
+	private final AtomicIntegerArray counts;
+	//Copy of the counts handed over to the view.
+	private final int[] copy;
+	/**
+	 * Create a new empty grid covering the map.
+	 * @param width The width of the map.
+	 * @param height The height of the map.
+	 * @param cellSize The size of a cell (in pixels of the map).
+	 */
+	DensityGrid(float width, float height, int cellSize)
+	{
+		this.cellSize = cellSize;
+		this.columns = Math.max(1, (int)Math.ceil(width/cellSize));
+		this.rows = Math.max(1, (int)Math.ceil(height/cellSize));
+		this.counts = new AtomicIntegerArray(columns*rows);
+		this.copy = new int[columns*rows];
+	}
+	/**
+	 * Count a vehicle which enters the grid.
+	 * @param x The coordinate on X of the vehicle.
+	 * @param y The coordinate on Y of the vehicle.
+	 * @return the cell of the vehicle.
+	 */
+	int add(float x, float y)
+	{
+		int cell = cell(x, y);
+		counts.incrementAndGet(cell);
+		return cell;
+	}
+	/**
+	 * Move a vehicle counted in the cell passed by parameter to its new position.
+	 * @param cell The cell the vehicle is counted in.
+	 * @param x The new coordinate on X of the vehicle.
+	 * @param y The new coordinate on Y of the vehicle.
+	 * @return the cell of the vehicle.
+	 */
+	int move(int cell, float x, float y)
+	{
+		int next = cell(x, y);
+		if (next!=cell)
+		{
+			counts.decrementAndGet(cell);
+			counts.incrementAndGet(next);
+		}
+		return next;
+	}
+	/**
+	 * Stop counting a vehicle which leaves the game.
+	 * @param cell The cell the vehicle is counted in.
+	 */
+	void remove(int cell)
+	{
+		counts.decrementAndGet(cell);
+	}
+	/**
+	 * Return the cell containing the point passed by parameter (the points out of the map are in the cell of the border).
+	 * @param x The coordinate on X of the point.
+	 * @param y The coordinate on Y of the point.
+	 * @return the index of the cell containing the point passed by parameter.
+	 */
+	private int cell(float x, float y)
+	{
+		int i = Math.max(0, Math.min(columns-1, (int)Math.floor(x/cellSize)));
+		int j = Math.max(0, Math.min(rows-1, (int)Math.floor(y/cellSize)));
+		return j*columns+i;
+	}
+	/**
+	 * Return the size of a cell.
+	 * @return the size of a cell (in pixels of the map).
+	 */
+	int getCellSize()
+	{
+		return cellSize;
+	}
+	/**
+	 * Return the number of columns of the grid.
+	 * @return the number of columns of the grid.
+	 */
+	int getColumns()
+	{
+		return columns;
+	}
+	/**
+	 * Return the number of rows of the grid.
+	 * @return the number of rows of the grid.
+	 */
+	int getRows()
+	{
+		return rows;
+	}
+	/**
+	 * Return a copy of the number of vehicles in each cell, row by row (the array is reused by the next call and must not be modified).
+	 * @return the number of vehicles in each cell.
+	 */
+	int[] getCounts()
+	{
+		for (int i=0; i<copy.length; ++i)
+			copy[i] = counts.get(i);
+		return copy;
+	}
+}
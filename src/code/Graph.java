@@ -1,12 +1,12 @@
 package code;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
- * This class provides the means to find the shortest path between two crossroads. It uses the Floyd Warshall algorithm.
+ * This class provides the means to find the shortest path between two crossroads. It uses the Floyd Warshall algorithm on matrices of
+ * primitives indexed by the index of each crossroad.
  * 
  * @author NOVAK Johann
  * 		johann.novak@utbm.fr
@@ -19,114 +19,149 @@ import java.util.Map;
 public class Graph implements Serializable{
 	
 	private static final long serialVersionUID = 1L;
+	//The crossroads of the graph (the index of a crossroad in this array is its index in the graph).
+	private CrossRoad[] crossRoads;
+	private int size;
+	/*Matrices whose lines and columns are the indexes of the crossroads, stored line by line: the cell (i,j) is at i*size+j.
+	 * distances stores the distances between two crossroads and intermediates the index of the intermediate between them (-1 if none).
+	 * nextHops stores the index of the next crossroad on the shortest path between two crossroads (-1 if no path) and is saved with the graph.*/
+	private float[] distances;
+	private transient int[] intermediates;
+	private int[] nextHops;
 	/**
-	 * Inner class of Graph. It allows to store two needed objects: an intermediate and a distance (between two crossroads).
-	 * 
-	 * @author NOVAK Johann
-	 * 		johann.novak@utbm.fr
-	 * @author SCHULZ Quentin
-	 * 		quentin.schulz@utbm.fr
-	 * 
-	 * @version v0.1
-	 *
-	 */
-	class FloydWarshallElement implements Serializable
-	{
-		private static final long serialVersionUID = 1L;
-		private float distance;
-		private CrossRoad intermediate;
-		/**
-		 * Initialize the FloydWarshallElement to infinity for the distance it keeps and null as an intermediate.
-		 */
-		public FloydWarshallElement()
-		{
-			distance = Float.POSITIVE_INFINITY;
-			intermediate = null;
-		}
-		/**
-		 * Return the intermediate (if it exists) between two cross roads.
-		 * @return the intermediate (if it exists) between two cross roads.
-		 */
-		public CrossRoad getIntermediate()
-		{
-			return intermediate;
-		}
-		/**
-		 * Set the intermediate between two crossroads.
-		 * @param crossRoad The crossroad which is the intermediate between two crossroads.
-		 */
-		public void setIntermediate(CrossRoad crossRoad)
-		{
-			this.intermediate = crossRoad;
-		}
-		/**
-		 * Return the distance between two crossroads.
-		 * @return the distance between two crossroads.
-		 */
-		public float getDistance()
-		{
-			return distance;
-		}
-		/**
-		 * Set the distance between two crossroads.
-		 * @param distance The distance between two crossroads.
-		 */
-		public void setDistance(float distance)
-		{
-			this.distance = distance;
-		}
-	}
-	//A matrix whose indexes are crossroads and whose values are FloydWarshallElements.
-	private Map<CrossRoad,Map<CrossRoad,FloydWarshallElement>> matrix;
-	/**
-	 * Initialize a Graph object thanks to the whole set of crossroads and roads in the game. It will launch the FloydWarshall
-	 * algorithm on the graph.
+	 * Initialize a Graph object thanks to the whole set of crossroads and roads in the game. It will give each crossroad its index in the graph,
+	 * launch the FloydWarshall algorithm on the graph then compute the next crossroad of each trip.
 	 * @param crossRoads The whole set of crossroads in the game.
 	 * @param roads The whole set of roads in the game.
 	 */
 	public Graph(List<CrossRoad> crossRoads, List<Road> roads)
 	{
 		this.initializeMatrix(crossRoads, roads);
-		FloydWarshall(crossRoads, roads);
+		FloydWarshall();
+		computeNextHops();
+		//The intermediates are not needed anymore.
+		intermediates = null;
 	}
 	
 	/**
-	 * Initialize the matrix of the graph and set all diagonal FloydWarshallElement distance values to 0, and distance values
+	 * Give each crossroad its index, initialize the matrices of the graph and set all diagonal distance values to 0, and distance values
 	 * between two neighbors to the distance of the road joining each crossroad.
 	 * @param crossRoads The whole set of crossroads in the game.
 	 * @param roads The whole set of roads in the game.
 	 */
 	private void initializeMatrix(List<CrossRoad> crossRoads, List<Road> roads)
 	{
-		matrix = new HashMap<CrossRoad, Map<CrossRoad,FloydWarshallElement>>();
-		for(CrossRoad cr : crossRoads)
-		{
-			matrix.put(cr, new HashMap<CrossRoad,FloydWarshallElement>());
-			for(CrossRoad CR : crossRoads)
-			{
-				matrix.get(cr).put(CR, new FloydWarshallElement());
-				if(CR == cr)
-					matrix.get(cr).get(CR).setDistance(0);
-			}
-		}
+		this.size = crossRoads.size();
+		this.crossRoads = crossRoads.toArray(new CrossRoad[size]);
+		for (int i=0; i<size; ++i)
+			this.crossRoads[i].setIndex(i);
+		distances = new float[size*size];
+		intermediates = new int[size*size];
+		Arrays.fill(distances, Float.POSITIVE_INFINITY);
+		Arrays.fill(intermediates, -1);
+		for (int i=0; i<size; ++i)
+			distances[i*size+i] = 0;
 		for(Road r : roads)
-			matrix.get(r.getStart()).get(r.getEnd()).setDistance(r.getDistance());
+			distances[r.getStart().getIndex()*size+r.getEnd().getIndex()] = r.getDistance();
 	}
 	/**
 	 * Set the distance and the intermediate between each crossroad thanks to the Floyd Warshall algorithm.
-	 * @param crossRoads The whole set of crossroads in the game.
-	 * @param roads The whole set of roads in the game.
 	 */
-	private void FloydWarshall(List<CrossRoad> crossRoads, List<Road> roads)
+	private void FloydWarshall()
 	{
-		for(CrossRoad k : crossRoads)
-			for(CrossRoad i : crossRoads)
-				for(CrossRoad j : crossRoads)
-					if(matrix.get(i).get(k).getDistance() + matrix.get(k).get(j).getDistance() < matrix.get(i).get(j).getDistance())
+		float ik;
+		int line;
+		for(int k=0; k<size; ++k)
+			for(int i=0; i<size; ++i)
+			{
+				ik = distances[i*size+k];
+				if (ik==Float.POSITIVE_INFINITY)
+					//No path from i to k: no shorter path from i through k.
+					continue;
+				line = i*size;
+				for(int j=0; j<size; ++j)
+					if(ik + distances[k*size+j] < distances[line+j])
 					{
-						matrix.get(i).get(j).setDistance(matrix.get(i).get(k).getDistance() + matrix.get(k).get(j).getDistance());
-						matrix.get(i).get(j).setIntermediate(k);
+						distances[line+j] = ik + distances[k*size+j];
+						intermediates[line+j] = k;
 					}
+			}
+	}
+	/**
+	 * Return the index of the crossroad passed by parameter in the graph.
+	 * @param cr The crossroad.
+	 * @return
+	 * <ul>
+	 * <li>-1, if the crossroad is not in the graph.
+	 * <li>the index of the crossroad, otherwise.
+	 * </ul>
+	 */
+	private int indexOf(CrossRoad cr)
+	{
+		if (cr==null || cr.getIndex()<0 || cr.getIndex()>=size || crossRoads[cr.getIndex()]!=cr)
+			return -1;
+		return cr.getIndex();
+	}
+	/**
+	 * Compute the next crossroad on the shortest path between each couple of crossroads thanks to the intermediates: the next crossroad from i to j
+	 * is j if there is no intermediate between them, otherwise it is the next crossroad from i to their intermediate.
+	 */
+	private void computeNextHops()
+	{
+		//-2 means not computed yet.
+		final int UNKNOWN = -2;
+		nextHops = new int[size*size];
+		Arrays.fill(nextHops, UNKNOWN);
+		int[] chain = new int[size+1];
+		int line, length, j, hop;
+		for (int i=0; i<size; ++i)
+		{
+			line = i*size;
+			for (int end=0; end<size; ++end)
+			{
+				//Follow the intermediates until finding a known next crossroad.
+				length = 0;
+				j = end;
+				while (nextHops[line+j]==UNKNOWN && intermediates[line+j]!=-1 && length<size)
+				{
+					chain[length++] = j;
+					j = intermediates[line+j];
+				}
+				if (nextHops[line+j]!=UNKNOWN)
+					hop = nextHops[line+j];
+				else if (intermediates[line+j]!=-1)
+					//The intermediates loop (only possible with roads of null length): no path.
+					hop = -1;
+				else
+					hop = (distances[line+j]==Float.POSITIVE_INFINITY)?-1:j;
+				nextHops[line+j] = hop;
+				//All crossroads of the chain have the same next crossroad.
+				while (length>0)
+					nextHops[line+chain[--length]] = hop;
+			}
+		}
+	}
+	/**
+	 * Check whether the crossroads and matrices of the graph are consistent. The graphs read from the saves written before the matrices were stored
+	 * in arrays have none of them.
+	 * @return
+	 * <ul>
+	 * <li>true, if the crossroads, distances and next crossroads are there and match the size of the graph.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	boolean isComplete()
+	{
+		return crossRoads!=null && crossRoads.length==size && distances!=null && distances.length==size*size && nextHops!=null
+				&& nextHops.length==size*size;
+	}
+	/**
+	 * Give each crossroad of the graph its index (the saves written before the crossroads had an index do not contain it).
+	 */
+	void indexCrossRoads()
+	{
+		for (int i=0; i<size; ++i)
+			crossRoads[i].setIndex(i);
 	}
 	/**
 	 * Return the next intermediate between two cross roads.
@@ -136,18 +171,9 @@ public class Graph implements Serializable{
 	 */
 	public CrossRoad getNextIntermediate(CrossRoad start, CrossRoad end)
 	{
-		FloydWarshallElement temp = null;
-		try{
-			temp = matrix.get(start).get(end);
-		}catch(NullPointerException npe){
+		int i = indexOf(start), j = indexOf(end);
+		if (i<0 || j<0 || nextHops[i*size+j]<0)
 			return null;
-		}
-		if(temp.getIntermediate() == null)
-		{
-			if(temp.getDistance() == Float.POSITIVE_INFINITY)
-				return null;
-			return end;
-		}
-		return getNextIntermediate(start, temp.getIntermediate());
+		return crossRoads[nextHops[i*size+j]];
 	}
 }
@@ -0,0 +1,54 @@
+package code;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless program. It loads a map from its XML file with a difficulty and a seed, then runs a given number of logical ticks as fast as possible
+ * (without waiting for the clock and without any window) and prints the counters of the game and the number of ticks per second.<br>
+ * Usage: HeadlessSimulation map.xml difficulty seed ticks [tickRate] [--parallel]
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class HeadlessSimulation {
+	public static void main(String[] args)
+	{
+		//No display is needed (nor available on servers).
+		System.setProperty("java.awt.headless", "true");
+		boolean parallel = false;
+		//Separate the options from the other arguments.
+		List<String> arguments = new ArrayList<String>();
+		for (String arg : args)
+		{
+			if (arg.equals("--parallel"))
+				parallel = true;
+			else
+				arguments.add(arg);
+		}
+		args = arguments.toArray(new String[0]);
+		if (args.length<4)
+		{
+			System.out.println("Usage: HeadlessSimulation map.xml NOOB|EASY|MEDIUM|HARD|HARDCORE seed ticks [tickRate] [--parallel]");
+			System.exit(-1);
+		}
+		File map = new File(args[0]);
+		Difficulty difficulty = Difficulty.valueOf(args[1].toUpperCase());
+		long seed = Long.parseLong(args[2]);
+		long ticks = Long.parseLong(args[3]);
+		int tickRate = (args.length>4)?Integer.parseInt(args[4]):SimulationClock.DEFAULT_TICK_RATE;
+		SceneManager scene = new SceneManager(map, difficulty, seed, tickRate);
+		scene.setParallelUpdate(parallel);
+		long start = System.nanoTime();
+		for (long i=0; i<ticks; ++i)
+			scene.step();
+		long duration = System.nanoTime()-start;
+		System.out.println("Map: "+map.getName()+" | Difficulty: "+difficulty+" | Seed: "+seed+(parallel?" | Parallel update":""));
+		System.out.println("Deaths: "+scene.getNbOfDeaths()+" Reached: "+scene.getNbOfReached()+" Trains: "+scene.getTrains().size());
+		System.out.println("Ticks: "+ticks+" in "+(duration/1000000)+" ms ("+(long)(ticks/(duration/1e9))+" ticks/s)");
+	}
+}
@@ -83,14 +83,14 @@ public class Intersection extends Point2D.Float implements Intersectable, Serial
 		Road temp = null;
 		Iterator<Road> it = this.roads.iterator();
 		temp = it.next();
-		while (temp.getEnd()==cr || temp.getAngleModuloPI()==angle.getAngleModuloPI())
+		while (temp.getEnd()==cr || temp.getAxisCode()==angle.getAxisCode())
 		{
 			if (it.hasNext())
 				temp = it.next();
 			else
 				break;
 		}
-		if (!it.hasNext() && (temp.getEnd()==cr ||temp.getAngleModuloPI()==angle.getAngleModuloPI()))
+		if (!it.hasNext() && (temp.getEnd()==cr ||temp.getAxisCode()==angle.getAxisCode()))
 			return null;
 		return temp;
 	}
@@ -154,6 +154,32 @@ public class Intersection extends Point2D.Float implements Intersectable, Serial
 		pt[0]=new Point2D.Float(this.x, this.y);
 		return pt;
 	}
+	/**
+	 * Return 1 (an intersection is represented by a pixel).
+	 * @return 1.
+	 */
+	@Override
+	public int getNbPoints() {
+		return 1;
+	}
+	/**
+	 * Return the X coordinate of the point where the intersection is.
+	 * @param i The index of the point (only 0).
+	 * @return the X coordinate of the point where the intersection is.
+	 */
+	@Override
+	public float getPointX(int i) {
+		return this.x;
+	}
+	/**
+	 * Return the Y coordinate of the point where the intersection is.
+	 * @param i The index of the point (only 0).
+	 * @return the Y coordinate of the point where the intersection is.
+	 */
+	@Override
+	public float getPointY(int i) {
+		return this.y;
+	}
 	/**
 	 * Return the string representing the crossroad.
 	 * @return
@@ -2,7 +2,7 @@ package code;
 
 import gui.frame.MainFrame;
 /**
- * Main program.
+ * Main program. Run with "--headless" as first argument to launch a headless simulation (see HeadlessSimulation).
  * @author NOVAK Johann
  * 		johann.novak@utbm.fr
  * @author SCHULZ Quentin
@@ -13,6 +13,13 @@ import gui.frame.MainFrame;
 public class Main {
 	public static void main(String[] args)
 	{
+		if (args.length>0 && args[0].equals("--headless"))
+		{
+			String[] headlessArgs = new String[args.length-1];
+			System.arraycopy(args, 1, headlessArgs, 0, headlessArgs.length);
+			HeadlessSimulation.main(headlessArgs);
+		}
+		else
 			new MainFrame();
 	}
 }
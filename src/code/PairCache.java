@@ -0,0 +1,317 @@
+package code;
+
+import java.util.Arrays;
+
+/**
+ * This class is the cache of the pairs of vehicles which can intersect each other. Each vehicle is given a box: its circumscribing rectangle enlarged
+ * by a margin (the distance the fastest vehicle drives during a few ticks). Two vehicles whose boxes do not overlap cannot intersect each other as long
+ * as each of them stays in its box, so each vehicle only stores the vehicles whose box overlaps its own (its pairs).<br>
+ * The boxes and pairs of all vehicles are computed again with a CollisionGrid every REFRESH_TICKS updates. Between two refreshes, a vehicle which left
+ * its box (it was moved to an Intersection) or which is new is given a new box at once: its pairs are searched in the grid of the last refresh and among
+ * the vehicles already given a new box since then. A vehicle moved during the check of the collisions (put on an Intersection) is given a new box at
+ * once too, before the following vehicles are checked.
+ *
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+class PairCache {
+	/**
+	 * This class is the entry of a vehicle in the cache: its box and its pairs.
+	 *
+	 * @author NOVAK Johann
+	 * 		johann.novak@utbm.fr
+	 * @author SCHULZ Quentin
+	 * 		quentin.schulz@utbm.fr
+	 *
+	 * @version v0.1
+	 */
+	static class Entry {
+		//Number of the refresh when the box was given.
+		private int refresh;
+		private int minX, minY, maxX, maxY;
+		private Car[] pairs = new Car[4];
+		private int nbPairs=0;
+	}
+	//Maximum number of updates between two refreshes.
+	public static final int REFRESH_TICKS = 8;
+	private final CollisionGrid grid = new CollisionGrid();
+	private int refresh=0, updates=0;
+	private boolean built=false;
+	//Size of the largest vehicle at the last refresh (the grid only finds the pairs of the vehicles which are not larger).
+	private int extent=0;
+	//Vehicles given a new box since the last refresh.
+	private Car[] moved = new Car[16];
+	private int nbMoved=0;
+	//Neighbors found in the grid (temporary).
+	private Car[] neighbors = new Car[16];
+	//Margin of the last update.
+	private int margin=0;
+	/**
+	 * Update the cache with the current position of the vehicles passed by parameter: refresh all of it if it is time to, otherwise give a new box to
+	 * the vehicles which left their box or are new.
+	 * @param cars The vehicles of the game.
+	 * @param size The number of vehicles in the array.
+	 * @param margin The margin around the circumscribing rectangle of a vehicle (at least the distance a vehicle can drive during REFRESH_TICKS
+	 * updates, otherwise the vehicles leave their box more often).
+	 */
+	void update(Car[] cars, int size, float margin)
+	{
+		int m = (int)Math.ceil(margin);
+		this.margin = m;
+		//Refresh when too many vehicles were given a new box: their pairs are searched among all of them.
+		if (!built || ++updates>=REFRESH_TICKS || nbMoved>Math.max(16, size/8))
+		{
+			refresh(cars, size, m);
+			return;
+		}
+		for (int i=0; i<size; ++i)
+			if (!isInBox(cars[i]) && size(cars[i])>extent)
+			{
+				refresh(cars, size, m);
+				return;
+			}
+		for (int i=0; i<size; ++i)
+			if (!isInBox(cars[i]))
+				move(cars[i], m, cars, size);
+	}
+	/**
+	 * Compute again the boxes and pairs of all vehicles.
+	 * @param cars The vehicles of the game.
+	 * @param size The number of vehicles in the array.
+	 * @param margin The margin around the circumscribing rectangle of a vehicle.
+	 */
+	private void refresh(Car[] cars, int size, int margin)
+	{
+		Entry entry;
+		++refresh;
+		updates = 0;
+		built = true;
+		Arrays.fill(moved, 0, nbMoved, null);
+		nbMoved = 0;
+		extent = 0;
+		for (int i=0; i<size; ++i)
+		{
+			setBox(cars[i], margin);
+			extent = Math.max(extent, size(cars[i]));
+		}
+		grid.build(cars, size, margin);
+		for (int i=0; i<size; ++i)
+		{
+			entry = cars[i].getPairEntry();
+			neighbors = grid.query(cars[i], neighbors);
+			//The grid gives no vehicle twice: the pairs are added without searching them first.
+			for (int j=0; neighbors[j]!=null; ++j)
+				if (neighbors[j]!=cars[i] && overlap(entry, neighbors[j].getPairEntry()))
+				{
+					if (entry.nbPairs==entry.pairs.length)
+						entry.pairs = Arrays.copyOf(entry.pairs, 2*entry.nbPairs);
+					entry.pairs[entry.nbPairs++] = neighbors[j];
+				}
+		}
+	}
+	/**
+	 * Give a new box at once to a vehicle moved since the last update (e.g. put on an Intersection during the check of the collisions), if it left its
+	 * box, so that the vehicles checked after it find it.
+	 * @param car The vehicle.
+	 * @param cars The vehicles of the game.
+	 * @param size The number of vehicles in the array.
+	 */
+	void relocate(Car car, Car[] cars, int size)
+	{
+		if (built && !isInBox(car))
+			move(car, margin, cars, size);
+	}
+	/**
+	 * Give a new box to a vehicle and search its pairs in the grid of the last refresh and among the vehicles given a new box since then (or among
+	 * all vehicles if it is larger than the vehicles of the grid).
+	 * @param car The vehicle.
+	 * @param margin The margin around the circumscribing rectangle of a vehicle.
+	 * @param cars The vehicles of the game.
+	 * @param size The number of vehicles in the array.
+	 */
+	private void move(Car car, int margin, Car[] cars, int size)
+	{
+		setBox(car, margin);
+		if (size(car)>extent)
+			for (int j=0; j<size; ++j)
+				pair(car, cars[j]);
+		else
+		{
+			neighbors = grid.query(car, neighbors);
+			for (int j=0; neighbors[j]!=null; ++j)
+				pair(car, neighbors[j]);
+		}
+		for (int j=0; j<nbMoved; ++j)
+			pair(car, moved[j]);
+		if (nbMoved==moved.length)
+			moved = Arrays.copyOf(moved, 2*nbMoved);
+		moved[nbMoved++] = car;
+	}
+	/**
+	 * Add each vehicle to the pairs of the other if their boxes overlap (and if they are both in the cache and in the game).
+	 * @param car The vehicle given a new box.
+	 * @param other The other vehicle.
+	 */
+	private void pair(Car car, Car other)
+	{
+		if (other==car || other.getCollisionOrder()<0 || other.getPairEntry()==null || other.getPairEntry().refresh!=refresh)
+			return;
+		if (!overlap(car.getPairEntry(), other.getPairEntry()))
+			return;
+		add(car.getPairEntry(), other);
+		add(other.getPairEntry(), car);
+	}
+	/**
+	 * Add a vehicle to the pairs of an entry (if it is not already in it).
+	 * @param entry The entry.
+	 * @param car The vehicle.
+	 */
+	private static void add(Entry entry, Car car)
+	{
+		for (int i=0; i<entry.nbPairs; ++i)
+			if (entry.pairs[i]==car)
+				return;
+		if (entry.nbPairs==entry.pairs.length)
+			entry.pairs = Arrays.copyOf(entry.pairs, 2*entry.nbPairs);
+		entry.pairs[entry.nbPairs++] = car;
+	}
+	/**
+	 * Set the box of the vehicle to its circumscribing rectangle enlarged by the margin and remove its pairs.
+	 * @param car The vehicle.
+	 * @param margin The margin around the circumscribing rectangle of a vehicle.
+	 */
+	private void setBox(Car car, int margin)
+	{
+		if (car.getPairEntry()==null)
+			car.setPairEntry(new Entry());
+		Entry entry = car.getPairEntry();
+		entry.refresh = refresh;
+		setBounds(entry, car);
+		entry.minX -= margin;
+		entry.minY -= margin;
+		entry.maxX += margin;
+		entry.maxY += margin;
+		Arrays.fill(entry.pairs, 0, entry.nbPairs, null);
+		entry.nbPairs = 0;
+	}
+	/**
+	 * Check whether the vehicle is in the cache and still in its box.
+	 * @param car The vehicle.
+	 * @return
+	 * <ul>
+	 * <li>true, if the vehicle was given its box since the last refresh and is still in it.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private boolean isInBox(Car car)
+	{
+		Entry entry = car.getPairEntry();
+		if (entry==null || entry.refresh!=refresh)
+			return false;
+		for (int i=0; i<car.npoints; ++i)
+			if (car.xpoints[i]<entry.minX || car.xpoints[i]>entry.maxX || car.ypoints[i]<entry.minY || car.ypoints[i]>entry.maxY)
+				return false;
+		return true;
+	}
+	/**
+	 * Return the size of the circumscribing rectangle of the vehicle.
+	 * @param car The vehicle.
+	 * @return the largest side of the circumscribing rectangle of the vehicle.
+	 */
+	private static int size(Car car)
+	{
+		int minX=car.xpoints[0], maxX=car.xpoints[0], minY=car.ypoints[0], maxY=car.ypoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			minX = Math.min(minX, car.xpoints[i]);
+			maxX = Math.max(maxX, car.xpoints[i]);
+			minY = Math.min(minY, car.ypoints[i]);
+			maxY = Math.max(maxY, car.ypoints[i]);
+		}
+		return Math.max(maxX-minX, maxY-minY);
+	}
+	/**
+	 * Check whether two boxes overlap.
+	 * @param e1 The entry of the first vehicle.
+	 * @param e2 The entry of the second vehicle.
+	 * @return
+	 * <ul>
+	 * <li>true, if the boxes overlap.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private static boolean overlap(Entry e1, Entry e2)
+	{
+		return e1.minX<=e2.maxX && e2.minX<=e1.maxX && e1.minY<=e2.maxY && e2.minY<=e1.maxY;
+	}
+	/**
+	 * Check that the pairs of the vehicle passed by parameter are exact: all vehicles of the game are in their box, and all vehicles whose
+	 * circumscribing rectangle touches the one of the vehicle are in its pairs. It tests all vehicles: it is only used by the assertions.
+	 * @param car The vehicle.
+	 * @param cars The vehicles of the game.
+	 * @param size The number of vehicles in the array.
+	 * @return
+	 * <ul>
+	 * <li>true, if the pairs of the vehicle are exact.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	boolean isExact(Car car, Car[] cars, int size)
+	{
+		Entry entry = car.getPairEntry(), bounds = new Entry(), otherBounds = new Entry();
+		boolean found;
+		setBounds(bounds, car);
+		for (int i=0; i<size; ++i)
+		{
+			if (cars[i]==car || cars[i].getCollisionOrder()<0)
+				continue;
+			if (!isInBox(cars[i]))
+				return false;
+			setBounds(otherBounds, cars[i]);
+			if (!overlap(bounds, otherBounds))
+				continue;
+			found = false;
+			for (int j=0; j<entry.nbPairs && !found; ++j)
+				found = entry.pairs[j]==cars[i];
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+	/**
+	 * Set the box of an entry to the circumscribing rectangle of the vehicle (without margin).
+	 * @param entry The entry.
+	 * @param car The vehicle.
+	 */
+	private static void setBounds(Entry entry, Car car)
+	{
+		entry.minX = entry.maxX = car.xpoints[0];
+		entry.minY = entry.maxY = car.ypoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			entry.minX = Math.min(entry.minX, car.xpoints[i]);
+			entry.maxX = Math.max(entry.maxX, car.xpoints[i]);
+			entry.minY = Math.min(entry.minY, car.ypoints[i]);
+			entry.maxY = Math.max(entry.maxY, car.ypoints[i]);
+		}
+	}
+	/**
+	 * Find the pairs of the vehicle passed by parameter. The result can contain vehicles which are not in the game anymore but no vehicle twice.
+	 * @param car The vehicle (updated in the cache since it last moved).
+	 * @param result The array where the pairs are written (it is enlarged if needed).
+	 * @return the array containing the pairs (result or a larger array) followed by null.
+	 */
+	Car[] query(Car car, Car[] result)
+	{
+		Entry entry = car.getPairEntry();
+		if (result.length<entry.nbPairs+1)
+			result = new Car[Math.max(entry.nbPairs+1, 2*result.length)];
+		System.arraycopy(entry.pairs, 0, result, 0, entry.nbPairs);
+		result[entry.nbPairs] = null;
+		return result;
+	}
+}
@@ -4,6 +4,7 @@ import gui.frame.Displayable;
 
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.util.ArrayList;
 /**
  * This class represents a Road. It has two cardinals which are where the road is attached to the starting and ending
  *  crossroads and a distance (between the crossroads).
@@ -44,6 +45,8 @@ public class Road extends Displayable {
 	private float distance;
 	//Store the beginning and the end of the road.
 	private Point2D.Float startingPoint, endingPoint;
+	//Queue of the vehicles driving on the road, sorted by distance travelled (the nearest of the start first), maintained by the SceneManager.
+	private transient ArrayList<Car> cars;
 	/**
 	 * Initialize the road whose starting and ending crossroads are passed by parameter. It also set its image.
 	 * @param start The crossroad from which the road starts.
@@ -84,6 +87,7 @@ public class Road extends Displayable {
 				this.vector[0] = xEnd-xStart+coeff;
 			this.vector[1] = yEnd-yStart;
 		}
+		this.updateOrientation();
 		this.distance = (float) Math.sqrt(Math.pow(xStart-xEnd,2)+Math.pow(yStart-yEnd+coeff,2));
 		//Compute coordinates, the circumscribing polygon and starting and ending points.
 		int x, y;
@@ -172,7 +176,7 @@ public class Road extends Displayable {
 	 * </ul>
 	 */
 	public boolean isCrossed(Road road){
-		return this.getAngleModuloPI()!=road.getAngleModuloPI();
+		return this.getAxisCode()!=road.getAxisCode();
 	}
 	/**
 	 * Compute the point where the current road and the road passed by parameter cross themselves.
@@ -318,4 +322,69 @@ public class Road extends Displayable {
 	{
 		return this.endPoint;
 	}
+	/**
+	 * Return the queue of the vehicles driving on the road, sorted by distance travelled when it was last sorted (the nearest of the start first).
+	 * @return the queue of the vehicles driving on the road.
+	 */
+	ArrayList<Car> getCars()
+	{
+		if (cars==null)
+			cars = new ArrayList<Car>();
+		return cars;
+	}
+	/**
+	 * Return the length of the road (the norm of its vector).
+	 * @return the length of the road.
+	 */
+	float getLength()
+	{
+		return (float) Math.sqrt(this.vector[0]*this.vector[0]+this.vector[1]*this.vector[1]);
+	}
+	/**
+	 * Remove from the queue the vehicles which left the road or the game since the last update.
+	 */
+	void removeLeavingCars()
+	{
+		int n=0;
+		Car car;
+		for (int i=0; i<getCars().size(); ++i)
+		{
+			car = cars.get(i);
+			if (car.getRoad()==this && car.getCollisionOrder()>=0)
+				cars.set(n++, car);
+			else
+				car.setQueueIndex(-1);
+		}
+		while (cars.size()>n)
+			cars.remove(cars.size()-1);
+	}
+	/**
+	 * Add a vehicle entering the road at the end of the queue (it is put at its place by the next sort).
+	 * @param car The vehicle entering the road.
+	 */
+	void enter(Car car)
+	{
+		car.setQueueIndex(getCars().size());
+		cars.add(car);
+	}
+	/**
+	 * Sort the queue by distance travelled and update the rank of each vehicle. The vehicles seldom overtake each other, so the queue is nearly
+	 * sorted and an insertion sort is linear.
+	 */
+	void sortCars()
+	{
+		int j;
+		Car car;
+		float length = getLength();
+		for (int i=0; i<getCars().size(); ++i)
+		{
+			car = cars.get(i);
+			car.updateTravelled(length);
+			for (j=i; j>0 && cars.get(j-1).getTravelled()>car.getTravelled(); --j)
+				cars.set(j, cars.get(j-1));
+			cars.set(j, car);
+		}
+		for (int i=0; i<cars.size(); ++i)
+			cars.get(i).setQueueIndex(i);
+	}
 }
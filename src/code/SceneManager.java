@@ -1,6 +1,8 @@
 package code;
 
 import gui.frame.Displayable;
+import gui.frame.RenderSnapshot;
+import gui.frame.RenderSnapshotBuffer;
 import interfaces.CarObserver;
 import interfaces.GameObservable;
 import interfaces.GameObserver;
@@ -18,9 +20,15 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -44,6 +52,52 @@ import org.xml.sax.SAXException;
 public class SceneManager extends Thread implements CarObserver, GameObservable, Serializable{
 
 	private static final long serialVersionUID = 1L;
+	/**
+	 * Inner class of SceneManager. It updates a range of trains on a ForkJoinPool, splitting the range in two while it is larger than a threshold.
+	 * 
+	 * @author NOVAK Johann
+	 * 		johann.novak@utbm.fr
+	 * @author SCHULZ Quentin
+	 * 		quentin.schulz@utbm.fr
+	 * 
+	 * @version v0.1
+	 *
+	 */
+	private static class TrainUpdateTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		//Number of trains under which the range is updated by the current thread.
+		private static final int THRESHOLD = 64;
+		private final Train[] trains;
+		private final int from, to;
+		private final float time;
+		/**
+		 * Create a task updating the trains from the index from (included) to the index to (excluded).
+		 * @param trains The trains to be updated.
+		 * @param from The index of the first train to be updated.
+		 * @param to The index following the last train to be updated.
+		 * @param time The time elapsed between two updates.
+		 */
+		TrainUpdateTask(Train[] trains, int from, int to, float time)
+		{
+			this.trains = trains;
+			this.from = from;
+			this.to = to;
+			this.time = time;
+		}
+		@Override
+		protected void compute()
+		{
+			if (to-from<=THRESHOLD)
+			{
+				for (int i=from; i<to; ++i)
+					trains[i].update(time);
+				return;
+			}
+			int middle = (from+to)>>>1;
+			invokeAll(new TrainUpdateTask(trains, from, middle, time), new TrainUpdateTask(trains, middle, to, time));
+		}
+	}
 	
 	private Graph graph;
 	
@@ -56,8 +110,45 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 	private List<CrossRoad> sources;
 	private Difficulty difficulty;
 	private int nbDeaths=0, nbReached=0;
-	//Current state of the Thread.
-	private volatile String state="ongoing";
+	//Clock giving the logical ticks of the game (and the current state of the Thread).
+	private transient SimulationClock clock;
+	private transient Random random = new Random();
+	//Store the duration (in ms) since the last creation of a vehicle.
+	private float count=0;
+	//Are the trains updated in parallel?
+	private boolean parallelUpdate=false;
+	//While true, the removals of trains are postponed in pendingRemovals (the trains are being updated in parallel).
+	private transient volatile boolean deferRemovals=false;
+	private transient Set<Train> pendingRemovals;
+	//Trains of the last parallel update, the trains among them updated in parallel and the trains updated afterwards (reused at each update).
+	private transient Train[] updatedTrains, independentTrains;
+	private transient Set<Train> serialTrains;
+	//Broadphase of the collision between vehicles.
+	private transient PairCache pairs;
+	//Vehicles in the order they are tested for collision, and the neighbors of the vehicle being tested.
+	private transient Car[] orderedCars, neighbors;
+	private transient int nbOrderedCars=0;
+	//Size (in pixels of the map) of a cell of the indexes of the Intersections and of the traffic lights.
+	private static final int STATIC_CELL_SIZE = 64;
+	//Indexes of the Intersections and of the traffic lights (built when the map is loaded), and the indexes found near the vehicle being tested.
+	private transient StaticGrid intersectionGrid, trafficLightsGrid;
+	private transient int[] staticNeighbors;
+	//Largest diagonal of a vehicle: two vehicles farther from each other cannot intersect.
+	private transient float reach=0;
+	//Vehicles already tested for collision during the current update.
+	private transient Set<Car> checked;
+	//Incremented each time a train is created or removed, or a vehicle removed from a train.
+	private transient int trainsVersion=0;
+	//Identifier of the next created vehicle.
+	private transient int nextCarId=0;
+	//Number of ticks executed since the game was created or loaded.
+	private transient long nbTicks=0;
+	//Snapshots of the moving actors handed over to the view.
+	private transient RenderSnapshotBuffer renderSnapshots = new RenderSnapshotBuffer();
+	//Size (in pixels of the map) of a cell of the density of vehicles handed over to the view.
+	private static final int DENSITY_CELL_SIZE = 32;
+	//Number of vehicles by cell of the map (created with the first snapshot).
+	private transient DensityGrid densityGrid;
 	private List<GameObserver> observers = new ArrayList<GameObserver>();
 	/**
 	 * Create a new SceneManager from the file and difficulty passed by parameter. The boolean loading is stating whether we are loading a save.
@@ -67,9 +158,22 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 	 * @throws InterruptedException
 	 */
 	public SceneManager(File file, Difficulty difficulty, boolean loading) throws InterruptedException
+	{
+		this(file, difficulty, loading, SimulationClock.DEFAULT_TICK_RATE);
+	}
+	/**
+	 * Create a new SceneManager from the file and difficulty passed by parameter, whose logical ticks are run at the frequency passed by parameter.
+	 * The boolean loading is stating whether we are loading a save.
+	 * @param file The file from which wil be extracted all the needed data (save or XML file of the map).
+	 * @param difficulty The difficulty of the game.
+	 * @param loading The boolean stating whether it is a save (true) or not.
+	 * @param tickRate The number of logical ticks per second.
+	 * @throws InterruptedException
+	 */
+	public SceneManager(File file, Difficulty difficulty, boolean loading, int tickRate) throws InterruptedException
 	{
 		super();
-		this.state = "ongoing";
+		this.clock = new SimulationClock(tickRate, SimulationClock.DEFAULT_MAX_CATCH_UP);
 		this.difficulty = difficulty;
 		if (!loading)
 			parseXML(file);
@@ -79,95 +183,249 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 		this.start();
 
 	}
+	/**
+	 * Create a new SceneManager from the XML file of the map and the difficulty passed by parameter, whose random generator is initialized with the
+	 * seed passed by parameter. The thread is NOT started: the game has to be run tick by tick thanks to step() (used by headless simulations).
+	 * @param file The XML file of the map.
+	 * @param difficulty The difficulty of the game.
+	 * @param seed The seed of the random generator (same seed, same map and same difficulty give the same game).
+	 * @param tickRate The number of logical ticks per second.
+	 */
+	public SceneManager(File file, Difficulty difficulty, long seed, int tickRate)
+	{
+		super();
+		this.clock = new SimulationClock(tickRate, SimulationClock.DEFAULT_MAX_CATCH_UP);
+		this.difficulty = difficulty;
+		this.random = new Random(seed);
+		parseXML(file);
+	}
 	public synchronized void run(){
 		go();
 	}
 	/**
-	 * Loop of the game. The loop is paused if the state of the thread is "paused", stopped if "stopped" and running if "ongoing". Create vehicles 
-	 * depending on the difficulty's flow.
+	 * Loop of the game. The loop waits for the logical ticks given by the clock: it is parked while the clock is paused and ends when the clock is stopped.
 	 */
 	private synchronized void go(){
-		long start= System.currentTimeMillis(), end = System.currentTimeMillis(), duration=0;
-		Random r = new Random();
-		//Store the duration since the last creation of a vehicle.
-		long count=0;
+		int ticks;
+		float time = clock.getTickMillis();
+		while((ticks=clock.nextTicks())>0)
+		{
+			//Catch up all the ticks elapsed since the last update.
+			for (int i=0; i<ticks; ++i)
+			{
+				this.tick(time);
+				this.publishSnapshot();
+			}
+			//Update the game observers
+			this.notifyObserver();
+		}
+	}
+	/**
+	 * Execute immediately one logical tick of the game, without waiting for the clock.
+	 */
+	public void step(){
+		this.tick(clock.getTickMillis());
+	}
+	/**
+	 * Execute one logical tick of the game. Create vehicles depending on the difficulty's flow, update the positions of all vehicles and handle
+	 * collisions.
+	 * @param time The duration (in ms) of the tick.
+	 */
+	private void tick(float time){
 		Car car=null;
 		CrossRoad startCR, endCR;
-		while(!state.equals("stopped"))
+		//Check whether the duration since the last creation of a vehicle has overriden the time specified in difficulty's flow.
+		if (count>difficulty.getFlow())
 		{
-			if (!state.equals("paused"))
+			//Be sure the duration since the last creation is reset but keep the extra time.
+			count%=difficulty.getFlow();
+			do{
+				//Find a crossroad which is a source and a crossroad which is final and loop while the trip from the start to the end is not possible
+				startCR = this.sources.get(random.nextInt(this.sources.size()));
+				endCR = this.finals.get(random.nextInt(this.finals.size()));
+			}while(graph.getNextIntermediate(startCR, endCR)==null);
+			car = new Car(startCR, endCR, graph, random);
+			car.setId(nextCarId++);
+			car.setDensityGrid(getDensityGrid());
+			this.trains.add(new Train(car));
+			car.addCarObserver(this);
+		}
+		//Update all vehicles thanks to the duration of the tick and the difficulty's speed.
+		this.updatePositions(time*difficulty.getSpeed());
+		//Handle collision between all the actors
+		this.checkCollision();
+		//Update duration since the last creation of a vehicle.
+		count+=time;
+		++nbTicks;
+	}
+	/**
+	 * Fill a snapshot of the traffic lights and vehicles with their current state (and the previous state of the vehicles) and the number of vehicles
+	 * by cell of the map, then publish it to the view.
+	 */
+	private void publishSnapshot(){
+		RenderSnapshot snapshot = renderSnapshots.getBack();
+		snapshot.clear(nbTicks, clock.getTickNanos(), nbDeaths, nbReached);
+		//The identifier of a traffic lights is its index in the list.
+		for (int i=0; i<trafficLights.size(); ++i)
+			snapshot.addTrafficLights(i, trafficLights.get(i));
+		for (Train train : trains)
+			for (Car car : train.getCars())
 			{
-				//Time before execution.
-				start = System.currentTimeMillis();
-				//Check whether the duration since the last creation of a vehicle has overriden the time specified in difficulty's flow.
-				if (count>difficulty.getFlow())
-				{
-					//Be sure the duration since the last creation is reset but keep the extra time.
-					count%=difficulty.getFlow();
-					do{
-						//Find a crossroad which is a source and a crossroad which is final and loop while the trip from the start to the end is not possible
-						startCR = this.sources.get(r.nextInt(this.sources.size()));
-						endCR = this.finals.get(r.nextInt(this.finals.size()));
-					}while(graph.getNextIntermediate(startCR, endCR)==null);
-					car = new Car(startCR, endCR, graph);
-					this.trains.add(new Train(car));
-					car.addCarObserver(this);
-				}
-				//Update all vehicles thanks to the time elapsed since the last updateand the difficulty's speed.
-				this.updatePositions(duration*difficulty.getSpeed());
-				//Handle collision between all the actors
-				this.checkCollision();
-				//Update the game observers
-				for(GameObserver obs : observers)
-					obs.update();
-				end = System.currentTimeMillis();
-				//Update the time elapsed between two updates.
-				duration = end-start;
-				//Update duration since the last creation of a vehicle.
-				count+=duration;
+				//The view interpolates between the previous published state of the vehicle and its current state.
+				if (car.isPublished())
+					snapshot.addVehicle(car.getId(), car, car.getPublishedX(), car.getPublishedY(), car.getPublishedAngle());
+				else
+					snapshot.addVehicle(car.getId(), car);
+				car.setPublished();
 			}
+		DensityGrid density = getDensityGrid();
+		snapshot.setDensity(density.getCounts(), density.getColumns(), density.getRows(), density.getCellSize());
+		renderSnapshots.publish();
+	}
+	/**
+	 * Return the grid counting the vehicles in each cell of the map for the view, created at the first call.
+	 * @return the grid counting the vehicles in each cell of the map.
+	 */
+	private DensityGrid getDensityGrid(){
+		if (densityGrid==null)
+		{
+			Point2D.Float size = getCircumscribingRectangle();
+			densityGrid = new DensityGrid(size.x, size.y, DENSITY_CELL_SIZE);
 		}
+		return densityGrid;
+	}
+	/**
+	 * Return the buffer through which the snapshots of the traffic lights and vehicles are handed over to the view.
+	 * @return the buffer through which the snapshots of the traffic lights and vehicles are handed over to the view.
+	 */
+	public RenderSnapshotBuffer getRenderSnapshots(){
+		return this.renderSnapshots;
 	}
 	/**
 	 * Update positions of all vehicles in the game.
 	 * @param time The time elapsed between two updates.
 	 */
 	private void updatePositions(float time){
+		if (parallelUpdate)
+		{
+			updatePositionsInParallel(time);
+			return;
+		}
 		for(Train train : this.trains)
 			train.update(time);
 	}
+	/**
+	 * Update positions of all vehicles in the game on a ForkJoinPool (or on the current thread when there are too few trains to split them). The
+	 * result is exactly the same as the serial update:
+	 * <ul>
+	 * <li>the trains waiting for or joining an other train, and the trains they are waiting for or joining, read or modify each other. They are
+	 * updated afterwards by the current thread in the order of the list of trains.
+	 * <li>all other trains only modify their own vehicles. They are updated in parallel and the removals of trains they ask for are applied
+	 * afterwards in the order of the list of trains.
+	 * </ul>
+	 * @param time The time elapsed between two updates.
+	 */
+	private void updatePositionsInParallel(float time){
+		int size = this.trains.size(), n=0;
+		if (size<=TrainUpdateTask.THRESHOLD)
+		{
+			//A task would update all the trains on one thread: update them without the pool.
+			for(Train train : this.trains)
+				train.update(time);
+			return;
+		}
+		if (updatedTrains==null || updatedTrains.length<size)
+		{
+			updatedTrains = new Train[2*size];
+			independentTrains = new Train[2*size];
+		}
+		if (serialTrains==null)
+			serialTrains = new HashSet<Train>();
+		//The list of trains is not modified by an other thread during the update: its size does not change before it is copied.
+		size = 0;
+		for (Train train : this.trains)
+			updatedTrains[size++] = train;
+		for (int i=0; i<size; ++i)
+			if (updatedTrains[i].getWait()!=null || updatedTrains[i].getJoin()!=null)
+			{
+				serialTrains.add(updatedTrains[i]);
+				if (updatedTrains[i].getWait()!=null)
+					serialTrains.add(updatedTrains[i].getWait());
+				if (updatedTrains[i].getJoin()!=null)
+					serialTrains.add(updatedTrains[i].getJoin());
+			}
+		for (int i=0; i<size; ++i)
+			if (!serialTrains.contains(updatedTrains[i]))
+				independentTrains[n++] = updatedTrains[i];
+		if (pendingRemovals==null)
+			pendingRemovals = ConcurrentHashMap.newKeySet();
+		deferRemovals = true;
+		try{
+			ForkJoinPool.commonPool().invoke(new TrainUpdateTask(independentTrains, 0, n, time));
+		}finally{
+			deferRemovals = false;
+		}
+		//Cross-train updates in the order of the serial update.
+		for (int i=0; i<size; ++i)
+			if (serialTrains.contains(updatedTrains[i]))
+				updatedTrains[i].update(time);
+		//Apply the postponed removals in the order of the list of trains.
+		if (!pendingRemovals.isEmpty())
+		{
+			for (int i=0; i<size; ++i)
+				if (pendingRemovals.contains(updatedTrains[i]))
+					this.trains.remove(updatedTrains[i]);
+			pendingRemovals.clear();
+			++trainsVersion;
+		}
+		//Do not keep the removed trains alive until the next update.
+		Arrays.fill(updatedTrains, 0, size, null);
+		Arrays.fill(independentTrains, 0, n, null);
+		serialTrains.clear();
+	}
+	/**
+	 * Set whether the trains are updated in parallel or not.
+	 * @param parallelUpdate true to update the trains in parallel, false to update them one after another.
+	 */
+	public void setParallelUpdate(boolean parallelUpdate){
+		this.parallelUpdate = parallelUpdate;
+	}
+	/**
+	 * Return whether the trains are updated in parallel or not.
+	 * @return
+	 * <ul>
+	 * <li>true, if the trains are updated in parallel.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	public boolean isParallelUpdate(){
+		return this.parallelUpdate;
+	}
 	/**
 	 * Unpause the thread.
 	 */
 	public void unpause(){
-		setState("ongoing");
+		clock.resume();
 	}
 	/**
 	 * Pause the thread.
 	 */
 	public void pause(){
-		setState("paused");
+		clock.pause();
 	}
 	/**
 	 * Stop the thread.
 	 */
 	public void setStop(){
-		setState("stopped");
-	}
-	/**
-	 * Set state of the thread.
-	 * @param s The state of the thread.
-	 */
-	private void setState(String s){
-		this.state = s;
+		clock.stop();
 	}
 	/**
 	 * Return the current state of the thread.
 	 * @return the current state of the thread.
 	 */
-	public String getSceneState()
+	public SimulationClock.State getSceneState()
 	{
-		return this.state;
+		return clock.getState();
 	}
 	/**
 	 * Return the list of all trains in the game.
@@ -205,6 +463,12 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 				this.graph = (Graph)ois.readObject();
 				this.crossRoads = (List<CrossRoad>)ois.readObject();
 				this.roads = (List<Road>)ois.readObject();
+				if (graph.isComplete())
+					//The next crossroads are saved with the graph: only give each crossroad its index again.
+					graph.indexCrossRoads();
+				else
+					//The save was written before the matrices of the graph were stored in arrays: create the graph again.
+					createGraph(crossRoads, roads);
 				this.finals = new ArrayList<CrossRoad>();
 				this.sources = new ArrayList<CrossRoad>();
 				this.intersections = new ArrayList<Intersection>();
@@ -221,11 +485,18 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 				}
 				this.trains = (CopyOnWriteArrayList<Train>)ois.readObject();
 				for (Train t : trains)
-					//For each found train, we update the reference for itself in each vehicle it contains.
+					/*For each found train, we update the reference for itself in each vehicle it contains and give an identifier to the vehicle (the
+					 * transient fields are not initialized by the unserialization: the vehicle is neither numbered nor in the queue of a road yet).*/
 					for (Car c : t.getCars())
+					{
 						c.setTrain(t);
+						c.setId(nextCarId++);
+						c.setCollisionOrder(-1);
+						c.setQueueIndex(-1);
+					}
 			    this.trafficLights = (ArrayList<TrafficLights>)ois.readObject();
 				this.difficulty = (Difficulty)ois.readObject();
+				buildStaticGrids();
 				//Update the list of all actors in the game
 				List<Displayable> disps = new ArrayList<Displayable>();
 				disps.addAll(crossRoads);
@@ -236,6 +507,11 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 				//Reload images of all actors (mandatory since BufferedImage is not serializable)
 				for (Displayable disp : disps)
 					disp.load();
+				//Count the vehicles in a new grid of the density (it needs the images of the crossroads to cover the map)
+				densityGrid = null;
+				for (Train t : trains)
+					for (Car c : t.getCars())
+						c.setDensityGrid(getDensityGrid());
 			} catch (ClassNotFoundException e) {
 				e.printStackTrace();
 			}
@@ -255,7 +531,6 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 	{ 
 		//Store all data extracted from the XML file.
 		MySAXParser gestionnaire=null;
-		Random r = new Random();
 		List<Road> temp = new ArrayList<Road>();
 		Road remove;
 		try{
@@ -312,12 +587,13 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 		int size=temp.size();
 		while (temp.size()!=0 && (temp.size()/(float)size)>difficulty.getNbTrafficLights())
 		{
-			remove = temp.get(r.nextInt(temp.size()));
+			remove = temp.get(random.nextInt(temp.size()));
 			this.trafficLights.add(new TrafficLights(remove));
 			temp.remove(remove);
 		}
 		//Create the graph representing the map.
 		createGraph(crossRoads, roads);
+		buildStaticGrids();
 	}
 	/**
 	 * Create the graph thanks to the crossroads and roads passedby parameter.
@@ -328,10 +604,9 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 		this.graph = new Graph(crossRoads, roads);	
 	}
 	/**
-	 * Save the current game.
+	 * Save the current game in a file chosen by the user.
 	 */
 	public void save(){
-	    ObjectOutputStream oos;
 	    //Allow the user to chose where to save the game and force the extension of the file to be ".save" and set the default directory to /save/
 	    JFileChooser jc = new JFileChooser(new File(System.getProperty("user.dir")+"/save/"));
 		jc.setDialogTitle("Sauvegarder");
@@ -339,13 +614,18 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 	    int result = jc.showSaveDialog(null);
 	    if (result!= JFileChooser.APPROVE_OPTION)
 	    	return;
+	    File f = jc.getSelectedFile();
+	   	if(!f.getPath().endsWith(".save"))
+		   	f = new File((f.getPath()+".save"));
+	   	save(f);
+	}
+	/**
+	 * Save the current game in the file passed by parameter.
+	 * @param f The file where the game will be saved.
+	 */
+	public void save(File f){
+	    ObjectOutputStream oos;
 	    try {
-		    File f = jc.getSelectedFile(), f2 = null;
-		   	if(!f.getPath().endsWith(".save"))
-		   	{
-			   	f2 = new File((f.getPath()+".save"));
-			   	f = f2;	
-		   	}
 		    f.createNewFile();
 		    oos = new ObjectOutputStream(
 		            new BufferedOutputStream(
@@ -380,31 +660,264 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 		return pt;
 	}
 	/**
-	 * Handle collision between all actors in the game.
+	 * Handle collision between all actors in the game. Each road holds the queue of the vehicles driving on it, sorted by distance travelled: a
+	 * vehicle on a road, out of the crossroads, is only tested with the vehicles of the same road near it in the queue and with the vehicles in the
+	 * crossroads near it. The vehicles in the crossroads are only tested with the vehicles near them, kept from a tick to another in a cache of pairs.
+	 * Those vehicles are tested in the order of the list of trains, as if all vehicles were tested.
 	 */
 	public void checkCollision()
 	{
-		//Store the list of already checked vehicles.
-		ArrayList<Car> temp = new ArrayList<Car>();
+		if (pairs==null)
+		{
+			pairs = new PairCache();
+			orderedCars = new Car[16];
+			neighbors = new Car[16];
+			checked = new HashSet<Car>();
+		}
+		//Store the set of already checked vehicles.
+		checked.clear();
+		numberCars();
+		updateQueues();
+		int version = trainsVersion, n;
+		//The margin of the boxes of the vehicles is the distance the fastest vehicle drives between two refreshes of the cache.
+		pairs.update(orderedCars, nbOrderedCars, clock.getTickMillis()*difficulty.getSpeed()*Car.Speed.FAST.getValue()*PairCache.REFRESH_TICKS);
 		for(Train train1 : this.getTrains())
 		{
 			for(Car c1 : train1.getCars())
 			{
-				temp.add(c1);
-				for(Train train2 : this.getTrains())
-					for(Car c2 : train2.getCars())
-						if(!temp.contains(c2))
-							//If both vehicles are not in the list of already checked vehicles, check intersection between both.
-							c1.intersectWith(c2);
-				for(Intersection inter: this.getIntersections())
-					//Check intersection with an Intersection (i.e. crossing of two roads).
-					c1.intersectWith(inter);
-				if (trafficLights!=null)
-					for(TrafficLights traff : this.getTrafficLights())
-						//Check intersection with a traffic lights.
-						c1.intersectWith(traff);
+				checked.add(c1);
+				if (version!=trainsVersion)
+				{
+					//A train has been created or removed since the vehicles were numbered: number them again.
+					numberCars();
+					version = trainsVersion;
+				}
+				//Checked when the assertions are enabled: no vehicle left its box since it was given (e.g. when put on an Intersection).
+				assert pairs.isExact(c1, orderedCars, nbOrderedCars) : "The pairs of the vehicle "+c1.getId()+" are not exact";
+				neighbors = selectNeighbors(c1, pairs.query(c1, neighbors));
+				n = sortByCollisionOrder(neighbors);
+				for (int i=0; i<n; ++i)
+					if(!checked.contains(neighbors[i]))
+						//If both vehicles are not in the list of already checked vehicles, check intersection between both.
+						c1.intersectWith(neighbors[i]);
+				//Check intersection with the Intersections (i.e. crossing of two roads) and the traffic lights near the vehicle.
+				checkStaticCollision(c1);
+			}
+		}
+	}
+	/**
+	 * Handle collision between the vehicle passed by parameter and the Intersections then the traffic lights near it, in the order of their lists, as
+	 * if all of them were tested. When the vehicle intersects one of them, it can be moved (to the Intersection): the following ones are searched
+	 * again from its new position.
+	 * @param car The vehicle.
+	 */
+	private void checkStaticCollision(Car car)
+	{
+		int i=0;
+		staticNeighbors = intersectionGrid.query(car, 0, staticNeighbors);
+		while (staticNeighbors[i]>=0)
+		{
+			if (car.intersectWith(intersections.get(staticNeighbors[i])))
+			{
+				staticNeighbors = intersectionGrid.query(car, staticNeighbors[i]+1, staticNeighbors);
+				i=0;
+			}
+			else
+				++i;
+		}
+		//An Intersection can move the vehicle onto its point: give it a new box at once for the vehicles checked after it.
+		pairs.relocate(car, orderedCars, nbOrderedCars);
+		if (trafficLightsGrid==null)
+			return;
+		i=0;
+		staticNeighbors = trafficLightsGrid.query(car, 0, staticNeighbors);
+		while (staticNeighbors[i]>=0)
+		{
+			if (car.intersectWith(trafficLights.get(staticNeighbors[i])))
+			{
+				staticNeighbors = trafficLightsGrid.query(car, staticNeighbors[i]+1, staticNeighbors);
+				i=0;
 			}
+			else
+				++i;
+		}
+	}
+	/**
+	 * Build the indexes of the Intersections and of the traffic lights (which never move during the game).
+	 */
+	private void buildStaticGrids()
+	{
+		intersectionGrid = new StaticGrid(intersections, STATIC_CELL_SIZE);
+		if (trafficLights!=null)
+			trafficLightsGrid = new StaticGrid(trafficLights, STATIC_CELL_SIZE);
+		staticNeighbors = new int[16];
+	}
+	/**
+	 * Update the queues of the roads: remove the vehicles which left their road or the game, add the vehicles which entered a road, then sort each
+	 * queue by distance travelled. The reach (the largest diagonal of a vehicle) is updated too.
+	 */
+	private void updateQueues()
+	{
+		Car car;
+		int diagonal=0;
+		for (int i=0; i<roads.size(); ++i)
+			roads.get(i).removeLeavingCars();
+		for (int i=0; i<nbOrderedCars; ++i)
+		{
+			car = orderedCars[i];
+			if (car.getRoad()!=null && car.getQueueIndex()<0)
+				car.getRoad().enter(car);
+			diagonal = Math.max(diagonal, car.getImage().getWidth()*car.getImage().getWidth()+car.getImage().getHeight()*car.getImage().getHeight());
+		}
+		reach = (float) Math.sqrt(diagonal);
+		for (int i=0; i<roads.size(); ++i)
+			roads.get(i).sortCars();
+	}
+	/**
+	 * Check whether the vehicle is at its place in the queue of its road (it is not when it entered an other road since the queues were sorted).
+	 * @param car The vehicle.
+	 * @return
+	 * <ul>
+	 * <li>true, if the vehicle is at its place in the queue of its road.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private static boolean isQueued(Car car)
+	{
+		return car.getRoad()!=null && car.getQueueIndex()>=0 && car.getQueueIndex()<car.getRoad().getCars().size()
+				&& car.getRoad().getCars().get(car.getQueueIndex())==car;
+	}
+	/**
+	 * Check whether the vehicle is in one of the crossroads at the ends of its road, or nearer of it than the reach, or out of its road (a vehicle
+	 * which missed its Intersection drives beyond the end of its road).
+	 * @param car The vehicle.
+	 * @return
+	 * <ul>
+	 * <li>true, if the vehicle is in a crossroad or out of its road (or if it is not at its place in the queue of its road).
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private boolean isInCrossRoad(Car car)
+	{
+		if (!isQueued(car))
+			return true;
+		if (car.getTravelled()<0 || car.getTravelled()>car.getRoad().getLength())
+			return true;
+		int minX=car.xpoints[0], maxX=car.xpoints[0], minY=car.ypoints[0], maxY=car.ypoints[0];
+		for (int i=1; i<car.npoints; ++i)
+		{
+			minX = Math.min(minX, car.xpoints[i]);
+			maxX = Math.max(maxX, car.xpoints[i]);
+			minY = Math.min(minY, car.ypoints[i]);
+			maxY = Math.max(maxY, car.ypoints[i]);
+		}
+		return isNear(car.getRoad().getStart(), minX, minY, maxX, maxY) || isNear(car.getRoad().getEnd(), minX, minY, maxX, maxY);
+	}
+	/**
+	 * Check whether the rectangle passed by parameter is in the crossroad passed by parameter, or nearer of it than the reach.
+	 * @param cr The crossroad.
+	 * @param minX The coordinate on X of the left side of the rectangle.
+	 * @param minY The coordinate on Y of the upper side of the rectangle.
+	 * @param maxX The coordinate on X of the right side of the rectangle.
+	 * @param maxY The coordinate on Y of the lower side of the rectangle.
+	 * @return
+	 * <ul>
+	 * <li>true, if the rectangle is in the crossroad or near it.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private boolean isNear(CrossRoad cr, int minX, int minY, int maxX, int maxY)
+	{
+		float x = cr.getCoordinates()[0], y = cr.getCoordinates()[1];
+		return maxX>=x-reach && minX<=x+cr.getImage().getWidth()+reach && maxY>=y-reach && minY<=y+cr.getImage().getHeight()+reach;
+	}
+	/**
+	 * Select, among the neighbors passed by parameter of a vehicle, the vehicles it can intersect. All of them are kept if the vehicle is in a
+	 * crossroad. Otherwise, the vehicle is on its road and only the vehicles in a crossroad and the vehicles of the same road nearer than the reach
+	 * in the queue (found from the vehicle by following its leaders and followers) are kept.
+	 * @param car The vehicle.
+	 * @param cars The neighbors of the vehicle in the cache of pairs (ended by null).
+	 * @return the array containing the selected vehicles (cars or a larger array) followed by null.
+	 */
+	private Car[] selectNeighbors(Car car, Car[] cars)
+	{
+		int n=0, count=1;
+		Car other;
+		if (isInCrossRoad(car))
+			return cars;
+		for (int i=0; cars[i]!=null; ++i)
+			//The vehicles of the queue are added below.
+			if (!(cars[i].getRoad()==car.getRoad() && isQueued(cars[i])) && isInCrossRoad(cars[i]))
+				cars[n++] = cars[i];
+		for (other=car.getLeader(); other!=null && other.getTravelled()-car.getTravelled()<=reach; other=other.getLeader())
+			++count;
+		for (other=car.getFollower(); other!=null && car.getTravelled()-other.getTravelled()<=reach; other=other.getFollower())
+			++count;
+		if (cars.length<n+count)
+			cars = Arrays.copyOf(cars, Math.max(n+count, 2*cars.length));
+		for (other=car.getLeader(); other!=null && other.getTravelled()-car.getTravelled()<=reach; other=other.getLeader())
+			if (other.getRoad()==car.getRoad())
+				cars[n++] = other;
+		for (other=car.getFollower(); other!=null && car.getTravelled()-other.getTravelled()<=reach; other=other.getFollower())
+			if (other.getRoad()==car.getRoad())
+				cars[n++] = other;
+		cars[n] = null;
+		return cars;
+	}
+	/**
+	 * Number all vehicles in the order of the list of trains (and of the list of vehicles in each train) and store them in this order.
+	 */
+	private void numberCars()
+	{
+		int size=0;
+		for (int i=0; i<nbOrderedCars; ++i)
+			orderedCars[i].setCollisionOrder(-1);
+		for (Train train : this.trains)
+			for (Car car : train.getCars())
+				if (car.getCollisionOrder()<0)
+				{
+					if (size==orderedCars.length)
+						orderedCars = Arrays.copyOf(orderedCars, 2*size);
+					car.setCollisionOrder(size);
+					orderedCars[size++] = car;
+				}
+		for (int i=size; i<nbOrderedCars; ++i)
+			orderedCars[i] = null;
+		nbOrderedCars = size;
+	}
+	/**
+	 * Sort the vehicles of the array passed by parameter (ended by null) in the order of the list of trains and remove those which are not in a
+	 * train anymore.
+	 * @param cars The vehicles to be sorted.
+	 * @return the number of remaining vehicles.
+	 */
+	private static int sortByCollisionOrder(Car[] cars)
+	{
+		int n=0, j;
+		Car car;
+		for (int i=0; cars[i]!=null; ++i)
+		{
+			car = cars[i];
+			if (car.getCollisionOrder()<0)
+				continue;
+			//Insertion sort (there are only a few neighbors).
+			for (j=n; j>0 && cars[j-1].getCollisionOrder()>car.getCollisionOrder(); --j)
+				cars[j] = cars[j-1];
+			cars[j] = car;
+			++n;
 		}
+		return n;
+	}
+	/**
+	 * Return the list of the actors which never move during the game: the crossroads then the roads.
+	 * @return the list of the actors which never move during the game.
+	 */
+	public ArrayList<Displayable> getStaticDisplayables()
+	{
+		ArrayList<Displayable> list = new ArrayList<Displayable>();
+		list.addAll(crossRoads);
+		list.addAll(roads);
+		return list;
 	}
 	/**
 	 * Return the list of all actors in the game.
@@ -449,10 +962,18 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 	public void addTrain(Train train)
 	{
 		this.trains.add(train);
+		++trainsVersion;
 	}
 	public void removeTrain(Train train)
 	{
+		if (deferRemovals)
+		{
+			//The trains are being updated in parallel: the removal (and the change of version) is applied once they are all updated.
+			this.pendingRemovals.add(train);
+			return;
+		}
 		this.trains.remove(train);
+		++trainsVersion;
 	}
 	@Override
 	public CrossRoad newIntermediate(CrossRoad start, CrossRoad end) 
@@ -476,6 +997,8 @@ public class SceneManager extends Thread implements CarObserver, GameObservable,
 	@Override
 	public void reach() {
 		++this.nbReached;
+		//The vehicle has been removed from its train.
+		++trainsVersion;
 	}
 	/**
 	 * Return the number of crashes.
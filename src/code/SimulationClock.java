@@ -0,0 +1,171 @@
+package code;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class represents the clock of the simulation. It cuts the real time into logical ticks of a fixed duration (set by a frequency in Hz) thanks to
+ * System.nanoTime() and an accumulator, so that the simulation does not depend on how fast the machine is.<br>
+ * When the clock is paused, the thread asking for ticks waits on the clock's monitor and does not consume any CPU until the clock is resumed or stopped.
+ * When the machine is too slow to follow the tick rate, the number of ticks to be caught up at once is limited and the extra time is dropped.
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class SimulationClock {
+	/**
+	 * This enumeration represents the different states of the clock (and therefore of the simulation):
+	 * <ul>
+	 * <li>ONGOING, the clock produces ticks.
+	 * <li>PAUSED, the clock produces no tick and the thread waiting for ticks is parked.
+	 * <li>STOPPED, the clock will never produce ticks anymore.
+	 * </ul>
+	 *
+	 * @author NOVAK Johann
+	 * 		johann.novak@utbm.fr
+	 * @author SCHULZ Quentin
+	 * 		quentin.schulz@utbm.fr
+	 *
+	 * @version v0.1
+	 */
+	public enum State{
+		ONGOING, PAUSED, STOPPED;
+	}
+	//Default frequency of the simulation (in Hz).
+	public static final int DEFAULT_TICK_RATE = 60;
+	//Default maximum number of ticks which can be caught up at once.
+	public static final int DEFAULT_MAX_CATCH_UP = 5;
+	private final long tickNanos;
+	private final int maxCatchUp;
+	//Time (in ns) elapsed but not yet consumed by a tick.
+	private long accumulator=0;
+	//Last time (in ns) the accumulator was updated.
+	private long lastTime;
+	private volatile State state=State.ONGOING;
+	/**
+	 * Create a new clock with the default tick rate and catch-up limit.
+	 */
+	public SimulationClock()
+	{
+		this(DEFAULT_TICK_RATE, DEFAULT_MAX_CATCH_UP);
+	}
+	/**
+	 * Create a new clock whose frequency and catch-up limit are passed by parameter.
+	 * @param tickRate The number of logical ticks per second.
+	 * @param maxCatchUp The maximum number of ticks which can be returned at once when the simulation is late.
+	 */
+	public SimulationClock(int tickRate, int maxCatchUp)
+	{
+		if (tickRate<=0 || maxCatchUp<=0)
+			throw new IllegalArgumentException("The tick rate and the catch-up limit have to be positive.");
+		this.tickNanos = 1000000000L/tickRate;
+		this.maxCatchUp = maxCatchUp;
+		this.lastTime = System.nanoTime();
+	}
+	/**
+	 * Return the duration of a logical tick (in ms).
+	 * @return the duration of a logical tick (in ms).
+	 */
+	public float getTickMillis()
+	{
+		return this.tickNanos/1000000.f;
+	}
+	/**
+	 * Return the duration of a logical tick (in ns).
+	 * @return the duration of a logical tick (in ns).
+	 */
+	public long getTickNanos()
+	{
+		return this.tickNanos;
+	}
+	/**
+	 * Return the current state of the clock.
+	 * @return the current state of the clock.
+	 */
+	public State getState()
+	{
+		return this.state;
+	}
+	/**
+	 * Wait for the next logical ticks. The calling thread is parked until at least one tick is elapsed, and waits on the clock while it is paused.
+	 * @return
+	 * <ul>
+	 * <li>0, if the clock is stopped (or the thread interrupted).
+	 * <li>the number of ticks to be executed (between 1 and the catch-up limit), otherwise.
+	 * </ul>
+	 */
+	public int nextTicks()
+	{
+		long now;
+		while(true)
+		{
+			synchronized(this)
+			{
+				if (state==State.PAUSED)
+				{
+					//Do not consume any CPU while paused.
+					while(state==State.PAUSED)
+					{
+						try {
+							this.wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return 0;
+						}
+					}
+					//The time spent in pause is not taken into account.
+					accumulator = 0;
+					lastTime = System.nanoTime();
+				}
+				if (state==State.STOPPED)
+					return 0;
+			}
+			now = System.nanoTime();
+			accumulator += now-lastTime;
+			lastTime = now;
+			if (accumulator>=tickNanos)
+				break;
+			//Sleep until the next tick is due.
+			LockSupport.parkNanos(this, tickNanos-accumulator);
+			if (Thread.currentThread().isInterrupted())
+				return 0;
+		}
+		long ticks = accumulator/tickNanos;
+		if (ticks>maxCatchUp)
+		{
+			//Too late: drop the time which cannot be caught up.
+			accumulator = 0;
+			return maxCatchUp;
+		}
+		accumulator -= ticks*tickNanos;
+		return (int)ticks;
+	}
+	/**
+	 * Pause the clock.
+	 */
+	public synchronized void pause()
+	{
+		if (state==State.ONGOING)
+			state = State.PAUSED;
+	}
+	/**
+	 * Resume the clock. The time spent in pause is not taken into account.
+	 */
+	public synchronized void resume()
+	{
+		if (state!=State.PAUSED)
+			return;
+		state = State.ONGOING;
+		this.notifyAll();
+	}
+	/**
+	 * Stop the clock definitely.
+	 */
+	public synchronized void stop()
+	{
+		state = State.STOPPED;
+		this.notifyAll();
+	}
+}
@@ -0,0 +1,140 @@
+package code;
+
+import interfaces.Intersectable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a static index of objects which never move during a game (the Intersections and the traffic lights). It is a uniform grid built
+ * once: each cell stores, in ascending order, the indexes in the list of the objects whose circumscribing rectangle overlaps it. A vehicle is then only
+ * tested with the objects of the cells overlapped by its circumscribing rectangle, in the order of the list, instead of with all of them.
+ *
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+class StaticGrid {
+	private final int cellSize, columns, rows;
+	//Coordinates of the upper left corner of the grid.
+	private final float originX, originY;
+	//Indexes of the objects in each cell, row by row.
+	private final int[][] cells;
+	/**
+	 * Build the index of the objects passed by parameter.
+	 * @param objects The objects to be indexed (they must never move).
+	 * @param cellSize The size of a cell (in pixels of the map).
+	 */
+	StaticGrid(List<? extends Intersectable> objects, int cellSize)
+	{
+		float minX=Float.MAX_VALUE, minY=Float.MAX_VALUE, maxX=-Float.MAX_VALUE, maxY=-Float.MAX_VALUE;
+		float[][] bounds = new float[objects.size()][];
+		for (int k=0; k<objects.size(); ++k)
+		{
+			bounds[k] = bounds(objects.get(k));
+			minX = Math.min(minX, bounds[k][0]);
+			minY = Math.min(minY, bounds[k][1]);
+			maxX = Math.max(maxX, bounds[k][2]);
+			maxY = Math.max(maxY, bounds[k][3]);
+		}
+		this.cellSize = cellSize;
+		this.originX = (objects.size()==0)?0:minX;
+		this.originY = (objects.size()==0)?0:minY;
+		this.columns = (objects.size()==0)?1:(int)Math.floor((maxX-originX)/cellSize)+1;
+		this.rows = (objects.size()==0)?1:(int)Math.floor((maxY-originY)/cellSize)+1;
+		this.cells = new int[columns*rows][];
+		//Count the objects of each cell, then fill the cells (the objects are added in the order of the list).
+		int[] counts = new int[columns*rows];
+		for (int k=0; k<objects.size(); ++k)
+			for (int j=row(bounds[k][1]); j<=row(bounds[k][3]); ++j)
+				for (int i=column(bounds[k][0]); i<=column(bounds[k][2]); ++i)
+					++counts[j*columns+i];
+		for (int c=0; c<cells.length; ++c)
+		{
+			cells[c] = new int[counts[c]];
+			counts[c] = 0;
+		}
+		for (int k=0; k<objects.size(); ++k)
+			for (int j=row(bounds[k][1]); j<=row(bounds[k][3]); ++j)
+				for (int i=column(bounds[k][0]); i<=column(bounds[k][2]); ++i)
+					cells[j*columns+i][counts[j*columns+i]++] = k;
+	}
+	/**
+	 * Return the circumscribing rectangle of the points of an object.
+	 * @param object The object.
+	 * @return the circumscribing rectangle of the points of the object (left, top, right and bottom sides).
+	 */
+	private static float[] bounds(Intersectable object)
+	{
+		float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+		for (int i=0; i<object.getNbPoints(); ++i)
+		{
+			bounds[0] = Math.min(bounds[0], object.getPointX(i));
+			bounds[1] = Math.min(bounds[1], object.getPointY(i));
+			bounds[2] = Math.max(bounds[2], object.getPointX(i));
+			bounds[3] = Math.max(bounds[3], object.getPointY(i));
+		}
+		return bounds;
+	}
+	/**
+	 * Find the objects whose circumscribing rectangle can overlap the circumscribing rectangle of the vehicle passed by parameter and whose index is
+	 * at least the one passed by parameter.
+	 * @param car The vehicle.
+	 * @param from The smallest index of the objects to be found.
+	 * @param result The array where the indexes of the objects are written (it is enlarged if needed).
+	 * @return the array containing the indexes of the objects in ascending order (result or a larger array) followed by -1.
+	 */
+	int[] query(Car car, int from, int[] result)
+	{
+		int minX=car.xpoints[0], maxX=car.xpoints[0], minY=car.ypoints[0], maxY=car.ypoints[0], n=0, j;
+		for (int i=1; i<car.npoints; ++i)
+		{
+			minX = Math.min(minX, car.xpoints[i]);
+			maxX = Math.max(maxX, car.xpoints[i]);
+			minY = Math.min(minY, car.ypoints[i]);
+			maxY = Math.max(maxY, car.ypoints[i]);
+		}
+		int firstColumn=column(minX), lastColumn=column(maxX), firstRow=row(minY), lastRow=row(maxY), index;
+		for (int row=firstRow; row<=lastRow; ++row)
+			for (int column=firstColumn; column<=lastColumn; ++column)
+				for (int k : cells[row*columns+column])
+				{
+					if (k<from)
+						continue;
+					if (result.length<n+2)
+						result = Arrays.copyOf(result, 2*(n+2));
+					//Insertion sort without duplicates (an object can be in several cells).
+					for (j=n; j>0 && result[j-1]>k; --j)
+						;
+					if (j>0 && result[j-1]==k)
+						continue;
+					for (index=n; index>j; --index)
+						result[index] = result[index-1];
+					result[j] = k;
+					++n;
+				}
+		result[n] = -1;
+		return result;
+	}
+	/**
+	 * Return the column of the cell containing the coordinate on X passed by parameter (the coordinates out of the grid are in the cells of the border).
+	 * @param x The coordinate on X.
+	 * @return the column of the cell containing the coordinate on X passed by parameter.
+	 */
+	private int column(float x)
+	{
+		return Math.max(0, Math.min(columns-1, (int)Math.floor((x-originX)/cellSize)));
+	}
+	/**
+	 * Return the row of the cell containing the coordinate on Y passed by parameter (the coordinates out of the grid are in the cells of the border).
+	 * @param y The coordinate on Y.
+	 * @return the row of the cell containing the coordinate on Y passed by parameter.
+	 */
+	private int row(float y)
+	{
+		return Math.max(0, Math.min(rows-1, (int)Math.floor((y-originY)/cellSize)));
+	}
+}
@@ -30,7 +30,7 @@ public class TrafficLights extends Displayable implements Intersectable{
 	public TrafficLights(Road road) {
 		this.setImagePath("./images/sprites/feu_vert.png");
 		this.createCoordinates(road);
-		this.vector = road.getVector();
+		this.setVector(road.getVector());
 		this.createPolygon();
 	}
 	/**
@@ -52,14 +52,14 @@ public class TrafficLights extends Displayable implements Intersectable{
 		 * the upper right corner (this is what we meant: relative to the image representing the traffic lights) */
 		this.addPoint((int)this.coordinates[0], (int)this.coordinates[1]);
 		int x, y;
-		x = (int) (this.coordinates[0]-Math.sin(this.getAngle())*image.getHeight());
-		y = (int) (this.coordinates[1]+Math.cos(this.getAngle())*image.getHeight());
+		x = (int) (this.coordinates[0]-this.getSin()*image.getHeight());
+		y = (int) (this.coordinates[1]+this.getCos()*image.getHeight());
 		this.addPoint(x, y);
-		x = (int) (this.coordinates[0]+Math.cos(this.getAngle())*image.getWidth()-Math.sin(this.getAngle())*image.getHeight());
-		y = (int) (this.coordinates[1]+Math.sin(this.getAngle())*image.getWidth()+Math.cos(this.getAngle())*image.getHeight());
+		x = (int) (this.coordinates[0]+this.getCos()*image.getWidth()-this.getSin()*image.getHeight());
+		y = (int) (this.coordinates[1]+this.getSin()*image.getWidth()+this.getCos()*image.getHeight());
 		this.addPoint(x, y);
-		x = (int) (this.coordinates[0]+Math.cos(this.getAngle())*image.getWidth());
-		y = (int) (this.coordinates[1]+Math.sin(this.getAngle())*image.getWidth());
+		x = (int) (this.coordinates[0]+this.getCos()*image.getWidth());
+		y = (int) (this.coordinates[1]+this.getSin()*image.getWidth());
 		this.addPoint(x, y);
 	}
 	/**
@@ -109,14 +109,17 @@ public class TrafficLights extends Displayable implements Intersectable{
 	 * Test if an Intersectable object (will only be called with a vehicle passed by parameter) intersects it.
 	 * @return
 	 * <ul>
-	 * <li>true, if at least one corner of the intersectable object is in the circumscribing polygon of the traffic lights
+	 * <li>true, if the circumscribing polygon of the intersectable object overlaps the one of the traffic lights (or, if it is not displayable,
+	 * if at least one of its points is in the circumscribing polygon of the traffic lights)
 	 * <li>false, otherwise
 	 * </ul>
 	 */
 	@Override
 	public boolean intersectWith(Intersectable inter) {
-		for (Point2D.Float p : inter.getPoints())
-			if (this.contains(p))
+		if (inter instanceof Displayable)
+			return this.overlaps((Displayable)inter);
+		for (int i=0; i<inter.getNbPoints(); ++i)
+			if (this.contains(inter.getPointX(i), inter.getPointY(i)))
 			return true;
 		return false;
 	}
@@ -127,4 +130,16 @@ public class TrafficLights extends Displayable implements Intersectable{
 			pt[i]=new Point2D.Float(this.xpoints[i], this.ypoints[i]);
 		return pt;
 	}
+	@Override
+	public int getNbPoints() {
+		return this.npoints;
+	}
+	@Override
+	public float getPointX(int i) {
+		return this.xpoints[i];
+	}
+	@Override
+	public float getPointY(int i) {
+		return this.ypoints[i];
+	}
 }
@@ -3,7 +3,6 @@ package code;
 
 import interfaces.CarObserver;
 
-import java.awt.geom.Point2D;
 import java.io.Serializable;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -181,6 +180,17 @@ public class Train implements Serializable{
 	public Train getJoin() {
 		return join;
 	}
+	/**
+	 * Return the train to be waited from its move.
+	 * @return
+	 * <ul>
+	 * <li>null, if there is no train to be waited.
+	 * <li>the train to be waited.
+	 * </ul>
+	 */
+	public Train getWait() {
+		return wait;
+	}
 	/**
 	 * Check if the current train is joining a train.
 	 * @return
@@ -296,9 +306,9 @@ public class Train implements Serializable{
 			return true;
 		for (Car c : cars)
 			for (Car c2 : train.getCars())
-				for (Point2D.Float p : c.getPoints())
-					if (c2.contains(p))
-						return false;
+				//Trains which only touch each other have passed: the waiting train must not be held back by a contact.
+				if (c.overlapsStrictly(c2))
+					return false;
 		return true;
 	}
 	/**
@@ -0,0 +1,90 @@
+package gui.frame;
+
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Window;
+import java.awt.image.BufferStrategy;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * This class draws the game actively: instead of asking Swing for a repaint, the render loop draws the game itself in a BufferStrategy of the window
+ * (page flipping if the screen allows it, copy of a back buffer otherwise) and shows it at once. The window and the panel have to ignore the repaints
+ * and the panel must not draw the game in paintComponent() (see GamePanel.setActiveRendering()), so that only the render loop draws it.<br>
+ * It counts the presented frames and the late frames: a frame is late when it is presented more than one frame budget and a half after the previous
+ * one (the BufferStrategy does not tell whether a vertical synchronization was missed).
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class ActiveRenderer {
+	private final Window window;
+	private final GamePanel panel;
+	private final BufferStrategy strategy;
+	//Maximum duration between two presented frames (in ns).
+	private final long frameNanos;
+	//Time when the last frame was presented (in ns).
+	private long lastPresent=0;
+	private volatile long presented=0, late=0;
+	/**
+	 * Create a new active renderer drawing the panel passed by parameter in the window passed by parameter (which has to be displayable).
+	 * @param window The window containing the panel.
+	 * @param panel The panel of the game.
+	 * @param fps The expected number of frames per second.
+	 */
+	public ActiveRenderer(Window window, GamePanel panel, int fps)
+	{
+		this.window = window;
+		this.panel = panel;
+		this.frameNanos = 1000000000L/fps;
+		window.createBufferStrategy(2);
+		this.strategy = window.getBufferStrategy();
+	}
+	/**
+	 * Draw the game in the back buffer and show it. The frame is drawn again if the content of the buffers was lost meanwhile.
+	 */
+	public void render()
+	{
+		if (!window.isShowing())
+			return;
+		Point origin = SwingUtilities.convertPoint(panel, 0, 0, window);
+		do{
+			do{
+				Graphics g = strategy.getDrawGraphics();
+				try{
+					g.translate(origin.x, origin.y);
+					g.clipRect(0, 0, panel.getWidth(), panel.getHeight());
+					panel.drawGame(g);
+				}
+				finally{
+					g.dispose();
+				}
+			}while (strategy.contentsRestored());
+			strategy.show();
+		}while (strategy.contentsLost());
+		long now = System.nanoTime();
+		if (lastPresent!=0 && now-lastPresent>frameNanos+frameNanos/2)
+			++late;
+		lastPresent = now;
+		++presented;
+	}
+	/**
+	 * Return the number of frames presented since the renderer was created.
+	 * @return the number of frames presented since the renderer was created.
+	 */
+	public long getPresentedFrames()
+	{
+		return presented;
+	}
+	/**
+	 * Return the number of frames presented later than one frame budget (and a half, for the jitter of the clock) after the previous one.
+	 * @return the number of late frames.
+	 */
+	public long getLateFrames()
+	{
+		return late;
+	}
+}
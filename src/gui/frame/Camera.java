@@ -2,7 +2,9 @@ package gui.frame;
 
 import java.awt.Rectangle;
 /**
- * This class provides a mean to change which components can be displayed in the view.
+ * This class provides a mean to change which components can be displayed in the view. Its rectangle is the part of the map which is displayed (in
+ * coordinates of the map): at the zoom level n, a pixel of the screen displays 2^n pixels of the map on each axis, so the rectangle is 2^n times larger
+ * than the screen.
  * @author NOVAK Johann
  * 		johann.novak@utbm.fr
  * @author SCHULZ Quentin
@@ -15,6 +17,11 @@ public class Camera extends Rectangle{
 	
 	//Size of the whole map.
 	private int xMax, yMax;
+	//Maximum zoom level (1 pixel of the screen for 16 pixels of the map on each axis).
+	public static final int MAX_ZOOM_LEVEL = 4;
+	//Size of the screen displaying the camera.
+	private final int screenWidth, screenHeight;
+	private int zoomLevel=0;
 	
 	/**
 	 * Create a new camera whose width and height are passed by parameter. The map will be the size of the camera if the xMax and yMax are smaller than
@@ -30,6 +37,8 @@ public class Camera extends Rectangle{
 		this.y=0;
 		this.width=width;
 		this.height=height;
+		this.screenWidth=width;
+		this.screenHeight=height;
 		//The map has to have at least the size of the camera.
 		this.xMax = (xMax>this.width)?xMax:this.width;
 		this.yMax = (yMax>this.height)?yMax:this.height;
@@ -59,24 +68,87 @@ public class Camera extends Rectangle{
 	 */
 	public synchronized void setX(int x)
 	{
-		if (x<0)
-			this.x=0;
-		else if (x>xMax-this.width)
-			this.x=xMax-this.width;
-		else
-			this.x=x;
+		if (x>xMax-this.width)
+			x=xMax-this.width;
+		//When zoomed out, the camera can be larger than the map: it stays on its left border.
+		this.x=(x<0)?0:x;
 	}
 	/**
 	 * Set the coordinate on Y of the upper left corner of the camera while being sure it is still in the map.
 	 * @param x The coordinate on Y of the future position of the upper left corner of the camera.
 	 */
 	public synchronized void setY(int y){
-		if (y<0)
-			this.y=0;
-		else if (y>=yMax-this.height)
-			this.y = yMax-this.height;
-		else
-			this.y=y;
+		if (y>=yMax-this.height)
+			y = yMax-this.height;
+		//When zoomed out, the camera can be larger than the map: it stays on its upper border.
+		this.y=(y<0)?0:y;
+	}
+	/**
+	 * Return the width of the screen displaying the camera.
+	 * @return the width of the screen displaying the camera.
+	 */
+	public int getScreenWidth() {
+		return screenWidth;
+	}
+	/**
+	 * Return the height of the screen displaying the camera.
+	 * @return the height of the screen displaying the camera.
+	 */
+	public int getScreenHeight() {
+		return screenHeight;
+	}
+	/**
+	 * Return the zoom level of the camera.
+	 * @return the zoom level of the camera (0 for 1:1, n for 1 pixel of the screen for 2^n pixels of the map on each axis).
+	 */
+	public synchronized int getZoomLevel()
+	{
+		return zoomLevel;
+	}
+	/**
+	 * Return the number of pixels of the map displayed by a pixel of the screen on each axis.
+	 * @return the number of pixels of the map displayed by a pixel of the screen on each axis (2^zoom level).
+	 */
+	public synchronized int getZoomFactor()
+	{
+		return 1<<zoomLevel;
+	}
+	/**
+	 * Return the zoom level from which the whole map is displayed.
+	 * @return the zoom level from which the whole map is displayed (at most MAX_ZOOM_LEVEL).
+	 */
+	public int getMaxZoomLevel()
+	{
+		int level=0;
+		while (level<MAX_ZOOM_LEVEL && ((screenWidth<<level)<xMax || (screenHeight<<level)<yMax))
+			++level;
+		return level;
+	}
+	/**
+	 * Set the zoom level of the camera while keeping the point of the map displayed at the point of the screen passed by parameter.
+	 * @param level The zoom level (between 0 and getMaxZoomLevel()).
+	 * @param screenX The coordinate on X of the point of the screen.
+	 * @param screenY The coordinate on Y of the point of the screen.
+	 */
+	public synchronized void setZoomLevel(int level, int screenX, int screenY)
+	{
+		level = Math.max(0, Math.min(level, getMaxZoomLevel()));
+		int mapX = this.x+(screenX<<zoomLevel), mapY = this.y+(screenY<<zoomLevel);
+		this.zoomLevel = level;
+		this.width = screenWidth<<level;
+		this.height = screenHeight<<level;
+		setX(mapX-(screenX<<level));
+		setY(mapY-(screenY<<level));
+	}
+	/**
+	 * Copy the part of the map which is displayed and return the zoom level, at once (the camera can be modified by an other thread).
+	 * @param view The rectangle where the part of the map which is displayed is copied.
+	 * @return the zoom level of the camera.
+	 */
+	public synchronized int getView(Rectangle view)
+	{
+		view.setBounds(this.x, this.y, this.width, this.height);
+		return zoomLevel;
 	}
 	
 }
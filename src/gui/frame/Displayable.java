@@ -2,16 +2,14 @@ package gui.frame;
 
 import java.awt.Polygon;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-
-import javax.imageio.ImageIO;
 /**
  * This abstract class represents all objects which can be displayed in the game. It implements Serializable to allow them to be saved, and extends from
  * Polygon to create the circumscribing polygon of the object depending on the image representing the object.<br>
  * It has the coordinates of its RELATIVE upper left corner, a representative image, a string for the path of this image (needed for unserializing the 
- * BufferedImage) and a directional vector.
+ * BufferedImage) and a directional vector. Its orientation is computed once each time its vector is modified.
  * @author NOVAK Johann
  * 		johann.novak@utbm.fr
  * @author SCHULZ Quentin
@@ -26,6 +24,11 @@ public abstract class Displayable extends Polygon implements Serializable{
 	protected float[] coordinates;
 	protected float[] vector = {0.f,0.f};
 	protected String imagePath;
+	//Number of direction codes for a whole turn.
+	public static final int DIRECTION_STEPS = 1<<30;
+	//Orientation of the object, computed from the vector each time it is modified.
+	private transient double angle=0, angleModuloPI=0, sin=0, cos=1;
+	private transient int direction=0;
 	/**
 	 * Return the image representative of the object.
 	 * @return the image representative of the object.
@@ -47,7 +50,7 @@ public abstract class Displayable extends Polygon implements Serializable{
 	 */
 	public void setImagePath(String s)
 	{
-		this.imagePath = new String(s);
+		this.imagePath = s;
 		this.setImage(this.imagePath);
 	}
 	/**
@@ -57,15 +60,15 @@ public abstract class Displayable extends Polygon implements Serializable{
 		this.setImage(imagePath);
 	}
 	/**
-	 * Reload the image thanks to the image path.
+	 * Retrieve the image from the registry of images thanks to the image path.
 	 * @param path The path of the image.
 	 */
 	private void setImage(String path) {
-		try {
-			this.image = ImageIO.read(new File(path));
-		} catch (IOException e) {
+		BufferedImage img = SpriteRegistry.get(path);
+		if (img==null)
 			System.out.println("No image found at "+path);
-		}
+		else
+			this.image = img;
 	}
 	/**
 	 * Return the coordinates of the RELATIVE upper left corner of the object.
@@ -89,68 +92,210 @@ public abstract class Displayable extends Polygon implements Serializable{
 		return vector;
 	}
 	/**
-	 * Return the angle (orientation) of the object rounded to 15 decimals.
-	 * @return the angle (orientation) of the object to 15 decimals.
+	 * Set the directional vector (orientation) of the object and update its orientation.
+	 * @param vector the directional vector (orientation) of the object.
 	 */
-	public double getAngle(){
-		double temp;
+	protected void setVector(float[] vector) {
+		this.vector = vector;
+		updateOrientation();
+	}
+	/**
+	 * Compute the orientation (angle, sine, cosine and direction codes) of the object from its directional vector. It has to be called each time
+	 * the vector is modified.
+	 */
+	protected void updateOrientation(){
 		if (vector[0]==0)/*vertical*/
 		{
 			if (vector[1]<=0)
-				temp = 0;
+				angle = 0;
 			else
-				temp = Math.PI;
+				angle = Math.PI;
 		}
 		else if (vector[1]==0)/*horizontal*/
 		{
 			if (vector[0]<=0)
-				temp= 3*Math.PI/2;
+				angle= 3*Math.PI/2;
 			else
-				temp = Math.PI/2;
+				angle = Math.PI/2;
 		}
 		else
-		{
-			temp = -Math.atan2(vector[0],vector[1]);
-			if (vector[1]!=0)
-				temp += Math.PI;
-		}
-		//round to 15 decimals
-		String s = Double.toString(temp);
-		s = s.substring(0, (s.length()>=15)?15:s.length());
-		temp = Double.parseDouble(s);
-		return temp;
+			angle = -Math.atan2(vector[0],vector[1])+Math.PI;
+		angleModuloPI = angle%Math.PI;
+		sin = Math.sin(angle);
+		cos = Math.cos(angle);
+		direction = toDirectionCode(angle);
+	}
+	/**
+	 * Return the direction code of the angle passed by parameter: the angle is quantized on DIRECTION_STEPS steps for a whole turn, so that two
+	 * angles can be compared without rounding issues.
+	 * @param angle The angle (in radians).
+	 * @return the direction code of the angle (between 0 and DIRECTION_STEPS-1).
+	 */
+	public static int toDirectionCode(double angle){
+		return (int)Math.round(angle/(2*Math.PI)*DIRECTION_STEPS)&(DIRECTION_STEPS-1);
+	}
+	/**
+	 * Return the angle (orientation) of the object.
+	 * @return the angle (orientation) of the object.
+	 */
+	public double getAngle(){
+		return angle;
 	}
 	/**
-	 * Return the angle modulo PI rounded to 15 decimals.
-	 * @return the angle modulo PI rounded to 15 decimals.
+	 * Return the angle modulo PI.
+	 * @return the angle modulo PI.
 	 */
 	public double getAngleModuloPI()
 	{
-		double temp;
-		if (vector[0]==0)/*vertical*/
+		return angleModuloPI;
+	}
+	/**
+	 * Return the sine of the angle of the object.
+	 * @return the sine of the angle of the object.
+	 */
+	public double getSin(){
+		return sin;
+	}
+	/**
+	 * Return the cosine of the angle of the object.
+	 * @return the cosine of the angle of the object.
+	 */
+	public double getCos(){
+		return cos;
+	}
+	/**
+	 * Return the direction code of the object (two objects having the same direction code are going in the same direction).
+	 * @return the direction code of the object.
+	 */
+	public int getDirectionCode(){
+		return direction;
+	}
+	/**
+	 * Return the axis code of the object, i.e. its direction code modulo PI (two objects having the same axis code are parallel).
+	 * @return the axis code of the object.
+	 */
+	public int getAxisCode(){
+		return direction&(DIRECTION_STEPS/2-1);
+	}
+	/**
+	 * Check whether the circumscribing polygon of the object overlaps the one of the object passed by parameter thanks to a separating axis test.
+	 * Both polygons are rectangles oriented by the angle of their object, so they overlap if and only if their projections overlap on each of the
+	 * axes of both rectangles. The circumscribing rectangles (the X and Y axes) are tested first, then the axes of the objects which are not
+	 * horizontal or vertical. Unlike testing whether a corner of a polygon is contained in the other one, it finds the overlaps where only edges
+	 * cross each other. Touching polygons overlap.
+	 * @param other The other object.
+	 * @return
+	 * <ul>
+	 * <li>true, if the polygons overlap.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	public boolean overlaps(Displayable other){
+		return overlaps(other, true);
+	}
+	/**
+	 * Check whether the circumscribing polygon of the object overlaps the one of the object passed by parameter, touching polygons not overlapping
+	 * (see overlaps()).
+	 * @param other The other object.
+	 * @return
+	 * <ul>
+	 * <li>true, if the interiors of the polygons overlap.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	public boolean overlapsStrictly(Displayable other){
+		return overlaps(other, false);
+	}
+	/**
+	 * Check whether the circumscribing polygon of the object overlaps the one of the object passed by parameter (see overlaps()).
+	 * @param other The other object.
+	 * @param touching Whether touching polygons overlap.
+	 * @return
+	 * <ul>
+	 * <li>true, if the polygons overlap.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private boolean overlaps(Displayable other, boolean touching){
+		if (npoints==0 || other.npoints==0 || areBoundsSeparated(other, touching))
+			return false;
+		if ((direction&(DIRECTION_STEPS/4-1))!=0 && (isSeparated(other, cos, sin, touching) || isSeparated(other, -sin, cos, touching)))
+			return false;
+		//The axes of the other object are the same if the objects are parallel or perpendicular.
+		if ((other.direction&(DIRECTION_STEPS/4-1))!=0 && ((other.direction-direction)&(DIRECTION_STEPS/4-1))!=0
+				&& (isSeparated(other, other.cos, other.sin, touching) || isSeparated(other, -other.sin, other.cos, touching)))
+			return false;
+		return true;
+	}
+	/**
+	 * Check whether the circumscribing rectangles of the polygons of the object and of the object passed by parameter are disjoint.
+	 * @param other The other object.
+	 * @param touching Whether touching rectangles overlap.
+	 * @return
+	 * <ul>
+	 * <li>true, if the rectangles are disjoint.
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private boolean areBoundsSeparated(Displayable other, boolean touching){
+		int minX=xpoints[0], maxX=xpoints[0], minY=ypoints[0], maxY=ypoints[0];
+		int otherMinX=other.xpoints[0], otherMaxX=other.xpoints[0], otherMinY=other.ypoints[0], otherMaxY=other.ypoints[0];
+		for (int i=1; i<npoints; ++i)
 		{
-			if (vector[1]<=0)
-				temp = 0;
-			else
-				temp = Math.PI;
+			minX = Math.min(minX, xpoints[i]);
+			maxX = Math.max(maxX, xpoints[i]);
+			minY = Math.min(minY, ypoints[i]);
+			maxY = Math.max(maxY, ypoints[i]);
 		}
-		else if (vector[1]==0)/*horizontal*/
+		for (int i=1; i<other.npoints; ++i)
 		{
-			if (vector[0]<=0)
-				temp= 3*Math.PI/2;
-			else
-				temp = Math.PI/2;
+			otherMinX = Math.min(otherMinX, other.xpoints[i]);
+			otherMaxX = Math.max(otherMaxX, other.xpoints[i]);
+			otherMinY = Math.min(otherMinY, other.ypoints[i]);
+			otherMaxY = Math.max(otherMaxY, other.ypoints[i]);
 		}
-		else
+		if (touching)
+			return maxX<otherMinX || otherMaxX<minX || maxY<otherMinY || otherMaxY<minY;
+		return maxX<=otherMinX || otherMaxX<=minX || maxY<=otherMinY || otherMaxY<=minY;
+	}
+	/**
+	 * Check whether the projections of the circumscribing polygons of the object and of the object passed by parameter on an axis are disjoint.
+	 * @param other The other object.
+	 * @param axisX The X coordinate of the axis.
+	 * @param axisY The Y coordinate of the axis.
+	 * @param touching Whether touching projections overlap.
+	 * @return
+	 * <ul>
+	 * <li>true, if the projections are disjoint (the axis separates the polygons).
+	 * <li>false, otherwise.
+	 * </ul>
+	 */
+	private boolean isSeparated(Displayable other, double axisX, double axisY, boolean touching){
+		double min=Double.MAX_VALUE, max=-Double.MAX_VALUE, otherMin=Double.MAX_VALUE, otherMax=-Double.MAX_VALUE, p;
+		for (int i=0; i<npoints; ++i)
+		{
+			p = xpoints[i]*axisX+ypoints[i]*axisY;
+			min = Math.min(min, p);
+			max = Math.max(max, p);
+		}
+		for (int i=0; i<other.npoints; ++i)
 		{
-			temp = -Math.atan2(vector[0],vector[1]);
-			if (vector[1]!=0)
-				temp += Math.PI;
+			p = other.xpoints[i]*axisX+other.ypoints[i]*axisY;
+			otherMin = Math.min(otherMin, p);
+			otherMax = Math.max(otherMax, p);
 		}
-		temp%=Math.PI;
-		String s = Double.toString(temp);
-		s = s.substring(0, (s.length()>=15)?15:s.length());
-		temp = Double.parseDouble(s);
-		return temp;
+		if (touching)
+			return max<otherMin || otherMax<min;
+		return max<=otherMin || otherMax<=min;
+	}
+	/**
+	 * Read the object and compute its orientation (which is not saved).
+	 * @param in The stream from which the object is read.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		updateOrientation();
 	}
 }
@@ -1,7 +1,5 @@
 package gui.frame;
 
-import interfaces.GameObserver;
-
 import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
@@ -20,12 +18,16 @@ import code.SceneManager;
  *
  * @version v0.1
  */
-public class GameFrame extends JFrame implements GameObserver,KeyListener{
+public class GameFrame extends JFrame implements KeyListener{
 
 	private static final long serialVersionUID = 1L;
 	
 	private SceneManager scene;
 	private GamePanel gamePanel;
+	//Loop refreshing the display, independently of the game.
+	private RenderLoop renderLoop;
+	//Is the game drawn actively in a BufferStrategy (set by the system property simulation.activeRendering)?
+	private final boolean activeRendering = Boolean.getBoolean("simulation.activeRendering");
 	/**
 	 * Creation of a new window game whose scene manager is passed by parameter.
 	 * @param sc The scene manager used to communicate between MVC components.
@@ -38,11 +40,11 @@ public class GameFrame extends JFrame implements GameObserver,KeyListener{
 		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		this.setSize(Toolkit.getDefaultToolkit().getScreenSize());
 		this.setLocationRelativeTo(null);
-		gamePanel= new GamePanel(null, this, new Camera(this.getWidth(), this.getHeight(), (int)scene.getCircumscribingRectangle().x, (int)scene.getCircumscribingRectangle().y));
+		gamePanel= new GamePanel(scene.getStaticDisplayables(), scene.getRenderSnapshots(), this, new Camera(this.getWidth(), this.getHeight(), (int)scene.getCircumscribingRectangle().x, (int)scene.getCircumscribingRectangle().y));
 		this.addKeyListener(this);
-		sc.addObserver(this);
 		this.setContentPane(gamePanel);
 		this.setVisible(true);
+		startRenderLoop();
 	}
 	/**
 	 * Creation of a new window game whose scene manager is passed by parameter and who is starting from a save..
@@ -59,10 +61,10 @@ public class GameFrame extends JFrame implements GameObserver,KeyListener{
 		this.setLocationRelativeTo(null);
 		
 		this.addKeyListener(this);
-		sc.addObserver(this);
-		gamePanel = new GamePanel(null, this, new Camera(this.getWidth(), this.getHeight(),(int)scene.getCircumscribingRectangle().x, (int)scene.getCircumscribingRectangle().y));
+		gamePanel = new GamePanel(scene.getStaticDisplayables(), scene.getRenderSnapshots(), this, new Camera(this.getWidth(), this.getHeight(),(int)scene.getCircumscribingRectangle().x, (int)scene.getCircumscribingRectangle().y));
 		this.setContentPane(gamePanel);
 		this.setVisible(true);
+		startRenderLoop();
 		//Pause the game in order to display the load screen.
 		scene.pause();
 		JOptionPane.showMessageDialog(this, ("Vous venez de charger "+f.getName()+". Bon jeu !") , "Chargement de partie", JOptionPane.PLAIN_MESSAGE);
@@ -75,13 +77,13 @@ public class GameFrame extends JFrame implements GameObserver,KeyListener{
 	public void keyReleased(KeyEvent e){
 		//Move the camera on pressed keys (arrows).
 		if (e.getKeyCode() == 37)
-			gamePanel.setCameraX(gamePanel.getCamera().x-20);
+			gamePanel.setCameraX(gamePanel.getCamera().x-20*gamePanel.getCamera().getZoomFactor());
 		else if (e.getKeyCode() == 39)
-			gamePanel.setCameraX(gamePanel.getCamera().x+20);
+			gamePanel.setCameraX(gamePanel.getCamera().x+20*gamePanel.getCamera().getZoomFactor());
 		else if (e.getKeyCode() == 38)
-			gamePanel.setCameraY(gamePanel.getCamera().y-20);
+			gamePanel.setCameraY(gamePanel.getCamera().y-20*gamePanel.getCamera().getZoomFactor());
 		else if (e.getKeyCode() == 40)
-			gamePanel.setCameraY(gamePanel.getCamera().y+20);
+			gamePanel.setCameraY(gamePanel.getCamera().y+20*gamePanel.getCamera().getZoomFactor());
 	}
 
 
@@ -135,11 +137,31 @@ public class GameFrame extends JFrame implements GameObserver,KeyListener{
 			scene.unpause();
 		}
 	}
+	/**
+	 * Start the loop refreshing the display (the window has to be visible).
+	 */
+	private void startRenderLoop()
+	{
+		if (activeRendering)
+		{
+			//Swing and the system do not paint the game anymore: only the render loop does.
+			this.setIgnoreRepaint(true);
+			gamePanel.setIgnoreRepaint(true);
+			ActiveRenderer activeRenderer = new ActiveRenderer(this, gamePanel, RenderLoop.DEFAULT_FPS);
+			renderLoop = new RenderLoop(activeRenderer, RenderLoop.DEFAULT_FPS);
+			gamePanel.setActiveRendering(activeRenderer, renderLoop);
+		}
+		else
+			renderLoop = new RenderLoop(gamePanel, RenderLoop.DEFAULT_FPS);
+		renderLoop.start();
+	}
 	@Override
-	public void update() {
-		//Update the map displayed
-		if (gamePanel!=null)
-			gamePanel.update(scene.getDisplayables(), scene.getNbOfDeaths(), scene.getNbOfReached());
+	public void dispose()
+	{
+		//Stop refreshing the display of the game.
+		if (renderLoop!=null)
+			renderLoop.setStop();
+		super.dispose();
 	}
 	/**
 	 * Return the scene manager.
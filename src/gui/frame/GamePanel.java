@@ -4,14 +4,18 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -21,8 +25,8 @@ import code.CrossRoad;
 import code.Road;
 
 /**
- * This class represents what will be displayed in the game window. It is strongly linked to a camera object and receive at each
- * update of the SceneManager the whole list of actors in the game.
+ * This class represents what will be displayed in the game window. It is strongly linked to a camera object, receives the actors which never move
+ * once and draws the traffic lights and vehicles from the last snapshot published by the SceneManager.
  * @author NOVAK Johann
  * 		johann.novak@utbm.fr
  * @author SCHULZ Quentin
@@ -30,90 +34,283 @@ import code.Road;
  *
  * @version v0.1
  */
-public class GamePanel extends JPanel implements MouseMotionListener, MouseListener{
+public class GamePanel extends JPanel implements MouseMotionListener, MouseListener, MouseWheelListener{
 
 	private static final long serialVersionUID = 1L;
-	//List of all actors in the game.
+	//List of the actors which never move (crossroads and roads).
 	private List<Displayable> list;
-	//Number of crashed vehicles and vehicles which reached their destination or a dead-end.
-	private int deaths=0, reached=0;
+	//Snapshots of the traffic lights and vehicles (and the counters of the game) published by the game.
+	private RenderSnapshotBuffer snapshots;
 	private Camera camera;
 	//Set the height of the little map displayed on lower right corner of the window.
 	private final float CAMERA_HEIGHT = 200.f;
 	private GameFrame frame;
+	//Rotated images of the actors.
+	private final SpriteAtlas atlas = new SpriteAtlas();
+	//Size of a cell of the density of vehicles in the miniature of the map (in pixels).
+	private static final int DENSITY_CELL = 5;
+	//Colors of the density of vehicles, from the least to the most dense cell.
+	private static final Color[] DENSITY_COLORS = {new Color(255, 0, 0, 40), new Color(255, 0, 0, 80), new Color(255, 0, 0, 120), new Color(255, 0, 0, 160), new Color(255, 0, 0, 200), new Color(255, 0, 0, 240)};
+	//Miniature of the map (without the camera) and the size of the window it was rendered for.
+	private BufferedImage minimap;
+	private int minimapWidth, minimapHeight;
+	//Whether the density of vehicles is displayed over the miniature of the map, and the number of vehicles per cell.
+	private volatile boolean showDensity=false;
+	private int[] density = new int[0];
 	/**
-	 * Create a new GamePanel with actors to be displayed, the GameFrame to which it is attached and the camera used to find coordinates of the map to display.
-	 * @param disp The set of all actors in the game at this moment.
+	 * This enumeration represents how the vehicles are drawn, from the most to the least detailed:
+	 * <ul>
+	 * <li>SPRITES, each vehicle is drawn with its rotated image.
+	 * <li>DOTS, each vehicle is a dot of its color.
+	 * <li>DENSITY, the number of vehicles in each cell of the map is drawn.
+	 * </ul>
+	 *
+	 * @author NOVAK Johann
+	 * 		johann.novak@utbm.fr
+	 * @author SCHULZ Quentin
+	 * 		quentin.schulz@utbm.fr
+	 *
+	 * @version v0.1
+	 */
+	public enum Detail{
+		SPRITES, DOTS, DENSITY;
+	}
+	//Maximum zoom levels and numbers of vehicles at which the vehicles are drawn as sprites, and as dots.
+	private static final int SPRITES_MAX_ZOOM_LEVEL = 1, DOTS_MAX_ZOOM_LEVEL = 2;
+	private static final int MAX_SPRITES = 2000, MAX_DOTS = 20000;
+	//Size of the dot of a vehicle (in pixels of the screen).
+	private static final int DOT_SIZE = 3;
+	//Color of the dots of the vehicles by image.
+	private final Map<BufferedImage, Color> dotColors = new IdentityHashMap<BufferedImage, Color>();
+	//How the vehicles were drawn during the last frame.
+	private volatile Detail detail=Detail.SPRITES;
+	//Whether the vehicles are interpolated between the ticks.
+	private volatile boolean interpolation=true;
+	//Crossroads and roads, rendered once for each zoom level.
+	private StaticLayer staticLayer;
+	//Part of the map displayed during the current frame.
+	private final Rectangle view = new Rectangle();
+	//Number of moving actors (vehicles and traffic lights, or cells of the density of vehicles) drawn and out of the camera during the last frame.
+	private volatile int drawn=0, culled=0;
+	/*Active renderer and render loop drawing the game, whose frames are counted in the window (null if the game is drawn by Swing: paintComponent()
+	 * does not draw anything otherwise).*/
+	private volatile ActiveRenderer activeRenderer;
+	private volatile RenderLoop renderLoop;
+	/**
+	 * Create a new GamePanel with the actors which never move, the snapshots of the other actors, the GameFrame to which it is attached and the camera
+	 * used to find coordinates of the map to display.
+	 * @param disp The list of the actors which never move (crossroads and roads).
+	 * @param snapshots The buffer through which the game publishes the snapshots of the traffic lights and vehicles.
 	 * @param frame The GameFrame to which it is attached.
 	 * @param camera The camera used to find coordinates of the map to display.
 	 */
-	public GamePanel(ArrayList<Displayable> disp, GameFrame frame, Camera camera)
+	public GamePanel(List<Displayable> disp, RenderSnapshotBuffer snapshots, GameFrame frame, Camera camera)
 	{
 		list = disp;
+		this.snapshots = snapshots;
 		this.setLayout(null);
 		this.frame = frame;
 		this.addMouseMotionListener(this);
 		this.addMouseListener(this);
+		this.addMouseWheelListener(this);
 		this.camera = camera;
 		this.setVisible(true);
 	}
+	@Override
+	public void paintComponent(Graphics g)
+	{
+		//When the game is drawn actively, only the render loop draws it (Swing still paints the panel when the window is exposed or resized).
+		if (activeRenderer!=null)
+			return;
+		drawGame(g);
+	}
 	/**
-	 * Update of the display.
-	 * @param disps The set of all actors to be displayed in the game at this moment.
-	 * @param deaths Number of crashed vehicles.
-	 * @param reached Number of vehicles which reached their destination or a dead-end.
+	 * Draw the game (crossroads and roads, last published snapshot of the moving actors and miniature of the map). It takes the snapshots and
+	 * draws the static layer, so it has to be called by only one thread: the thread of Swing through paintComponent() when the rendering is
+	 * passive, the render loop through the ActiveRenderer when it is active.
+	 * @param g The graphics where the game is drawn.
 	 */
-	public void update(List<Displayable> disps, int deaths, int reached){
-		list = new ArrayList<>(disps);
-		this.reached = reached;
-		this.deaths = deaths;
-		this.repaint();
-	}
-	public synchronized void paintComponent(Graphics g)
+	public synchronized void drawGame(Graphics g)
 	{
-		BufferedImage img = null;
+		SpriteAtlas.Sprite sprite;
+		BufferedImage img;
+		float x, y, radius;
 		super.paintComponent(g);
 		g.setColor(Color.BLACK);
-		AffineTransform at = new AffineTransform();
 		Graphics2D g2d = (Graphics2D) g;
-		AffineTransform save = g2d.getTransform();
 		if (list==null)
 			return;
-		for(Displayable disp : list)
+		//The static map is rendered once, when the first actors are received.
+		if (staticLayer==null)
+			staticLayer = new StaticLayer(list, camera.getxMax(), camera.getyMax(), this.getBackground());
+		//The camera can be moved by an other thread meanwhile: the same view is used for the whole frame.
+		int level = camera.getView(view), factor = 1<<level;
+		int originX = Math.floorDiv(view.x, factor), originY = Math.floorDiv(view.y, factor);
+		staticLayer.draw(g2d, view, level);
+		//Only the last published snapshot is read: the actors themselves are modified by the game meanwhile.
+		RenderSnapshot snapshot = snapshots.take();
+		//The actors are drawn between their two last published states (one tick late), so that they move smoothly between the ticks.
+		float alpha = interpolation?snapshot.getAlpha(System.nanoTime()):1;
+		int drawn=0, culled=0, vehicles=snapshot.size()-snapshot.getNbTrafficLights();
+		//Choose how the vehicles are drawn, depending on the zoom level and on their number.
+		Detail detail;
+		if (level>DOTS_MAX_ZOOM_LEVEL || vehicles>MAX_DOTS)
+			detail = Detail.DENSITY;
+		else if (level>SPRITES_MAX_ZOOM_LEVEL || vehicles>MAX_SPRITES)
+			detail = Detail.DOTS;
+		else
+			detail = Detail.SPRITES;
+		this.detail = detail;
+		//The traffic lights are always drawn as sprites, the vehicles only if the detail allows it.
+		int last = (detail==Detail.DENSITY)?snapshot.getNbTrafficLights():snapshot.size();
+		for (int i=0; i<last; ++i)
 		{
-			if (disp.getClass()!=Road.class)
+			img = snapshot.getImage(i);
+			if (img==null)
+				continue;
+			//The image is rotated around its upper left corner: whatever its angle, it is in the square of half side its diagonal.
+			x = snapshot.getX(i, alpha);
+			y = snapshot.getY(i, alpha);
+			radius = (float)Math.hypot(img.getWidth(), img.getHeight());
+			if (!view.intersects(x-radius, y-radius, 2*radius, 2*radius))
 			{
-				try{
-					at = new AffineTransform();
-					//Translate the origin to the coordinates of the camera.
-					at.translate(-camera.x, -camera.y);
-					img = disp.getImage();
-					/*On tourne le repère de l'angle de l'image*/
-					//Rotate the representative image of the actor of its angle.
-					at.rotate(disp.getAngle());
-					AffineTransformOp op = new AffineTransformOp(at, AffineTransformOp.TYPE_BILINEAR);
-					g2d.drawImage(img,op, (int)disp.getCoordinates()[0], (int)disp.getCoordinates()[1]);
-					//Reset the origin
-					g2d.setTransform(save);
-				}
-				catch(NullPointerException ce){}
+				++culled;
+				continue;
 			}
-			else
+			++drawn;
+			if (detail==Detail.DOTS && i>=snapshot.getNbTrafficLights())
 			{
-				//If it is a Road, fill in its polygon in grey considering the camera.
-				at = new AffineTransform();
-				at.translate(-camera.x, -camera.y);
-				g2d.setColor(Color.GRAY);
-				g2d.setTransform(at);
-				g2d.fillPolygon(disp);
-				g2d.setTransform(save);
+				//A dot of the color of the vehicle at the center of its image.
+				double angle = snapshot.getAngle(i, alpha);
+				x += (img.getWidth()*Math.cos(angle)-img.getHeight()*Math.sin(angle))/2;
+				y += (img.getWidth()*Math.sin(angle)+img.getHeight()*Math.cos(angle))/2;
+				g2d.setColor(getDotColor(img));
+				g2d.fillRect(Math.floorDiv((int)x, factor)-originX-DOT_SIZE/2, Math.floorDiv((int)y, factor)-originY-DOT_SIZE/2, DOT_SIZE, DOT_SIZE);
+				continue;
 			}
+			//Copy the image of the actor rotated of its angle, considering the camera (and reduced when zoomed out).
+			sprite = atlas.get(img, snapshot.getAngle(i, alpha));
+			if (level==0)
+				g2d.drawImage(sprite.getImage(), (int)x-originX+sprite.getOffsetX(), (int)y-originY+sprite.getOffsetY(), null);
+			else
+				g2d.drawImage(sprite.getImage(), Math.floorDiv((int)x+sprite.getOffsetX(), factor)-originX, Math.floorDiv((int)y+sprite.getOffsetY(), factor)-originY,
+						Math.max(1, sprite.getImage().getWidth()/factor), Math.max(1, sprite.getImage().getHeight()/factor), null);
 		}
+		if (detail==Detail.DENSITY)
+			drawn += drawDensityMap(g2d, snapshot, factor, originX, originY);
+		this.drawn = drawn;
+		this.culled = culled;
 		//Creation of the miniature of the map in the lower right corner of the window.
 		float ratio = this.getWidth()/((float)this.getHeight());
+		int minimapX = (int)(this.getWidth()-CAMERA_HEIGHT*ratio), minimapY = (int)(this.getHeight()-CAMERA_HEIGHT);
+		//The crossroads and roads of the miniature are rendered once for each size of the window.
+		if (minimap==null || minimapWidth!=this.getWidth() || minimapHeight!=this.getHeight())
+		{
+			minimapWidth = this.getWidth();
+			minimapHeight = this.getHeight();
+			minimap = renderMinimap(ratio, minimapX, minimapY);
+		}
+		g2d.drawImage(minimap, minimapX, minimapY, null);
+		if (showDensity)
+			drawDensity(g2d, snapshot, ratio, minimapX, minimapY);
+		g2d.setColor(Color.BLACK);
+		//Print counters of crashed vehicles and vehicles which reached their destination or a dead-end.
+		g2d.drawString("Deaths :"+snapshot.getDeaths()+" Reached :"+snapshot.getReached(), this.getWidth()-CAMERA_HEIGHT*ratio, this.getHeight()-205);
+		//Print counters of the frames presented by the active rendering, the frames presented late and the frames dropped by the render loop.
+		ActiveRenderer renderer = this.activeRenderer;
+		if (renderer!=null)
+			g2d.drawString("Frames :"+renderer.getPresentedFrames()+"/"+renderLoop.getFrames()+" Late :"+renderer.getLateFrames()+" Dropped :"
+					+renderLoop.getDroppedFrames(), this.getWidth()-CAMERA_HEIGHT*ratio, this.getHeight()-220);
+		//Draw a circumscribing rectangle of the map currently shown in the miniature of the whole map.
+		g2d.setColor(Color.PINK);
+		g2d.drawRect((int)(CAMERA_HEIGHT*ratio/camera.getxMax()*view.x+this.getWidth()-CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT/camera.getxMax()*view.y + this.getHeight()-CAMERA_HEIGHT), (int)(CAMERA_HEIGHT*ratio/camera.getxMax()*view.width), (int)(CAMERA_HEIGHT/camera.getxMax()*view.height));
+	}
+	/**
+	 * Draw the number of vehicles in each cell of the map seen by the camera: the more vehicles in a cell, the redder. The cost only depends on the
+	 * size of the screen, not on the number of vehicles.
+	 * @param g2d The graphics of the window.
+	 * @param snapshot The snapshot containing the density of vehicles.
+	 * @param factor The number of pixels of the map for a pixel of the screen.
+	 * @param originX The coordinate on X of the camera on the screen at this zoom level.
+	 * @param originY The coordinate on Y of the camera on the screen at this zoom level.
+	 * @return the number of cells drawn.
+	 */
+	private int drawDensityMap(Graphics2D g2d, RenderSnapshot snapshot, int factor, int originX, int originY)
+	{
+		int size = snapshot.getDensityCellSize(), max = snapshot.getDensityMax(), drawn=0, count, x, y;
+		if (max==0)
+			return 0;
+		int lastColumn = Math.min(snapshot.getDensityColumns()-1, (view.x+view.width)/size), lastRow = Math.min(snapshot.getDensityRows()-1, (view.y+view.height)/size);
+		for (int j=Math.max(0, view.y/size); j<=lastRow; ++j)
+			for (int i=Math.max(0, view.x/size); i<=lastColumn; ++i)
+			{
+				count = snapshot.getDensity(i, j);
+				if (count==0)
+					continue;
+				x = Math.floorDiv(i*size, factor)-originX;
+				y = Math.floorDiv(j*size, factor)-originY;
+				g2d.setColor(DENSITY_COLORS[(count*(DENSITY_COLORS.length-1))/max]);
+				g2d.fillRect(x, y, Math.floorDiv((i+1)*size, factor)-originX-x, Math.floorDiv((j+1)*size, factor)-originY-y);
+				++drawn;
+			}
+		return drawn;
+	}
+	/**
+	 * Return the color of the dot representing the vehicles whose image is passed by parameter: the average color of its opaque pixels.
+	 * @param img The image of the vehicle.
+	 * @return the color of the dot.
+	 */
+	private Color getDotColor(BufferedImage img)
+	{
+		Color color = dotColors.get(img);
+		if (color!=null)
+			return color;
+		long r=0, g=0, b=0, n=0;
+		int rgb;
+		for (int i=0; i<img.getWidth(); ++i)
+			for (int j=0; j<img.getHeight(); ++j)
+			{
+				rgb = img.getRGB(i, j);
+				if ((rgb>>>24)<128)
+					continue;
+				r += (rgb>>16)&0xFF;
+				g += (rgb>>8)&0xFF;
+				b += rgb&0xFF;
+				++n;
+			}
+		color = (n==0)?Color.BLACK:new Color((int)(r/n), (int)(g/n), (int)(b/n));
+		dotColors.put(img, color);
+		return color;
+	}
+	/**
+	 * Return how the vehicles were drawn during the last frame.
+	 * @return how the vehicles were drawn during the last frame.
+	 */
+	public Detail getDetail()
+	{
+		return detail;
+	}
+	/**
+	 * Render the miniature of the map: a white rectangle with its border, the crossroads and the roads.
+	 * @param ratio The ratio between the width and the height of the window.
+	 * @param minimapX The coordinate on X of the miniature in the window.
+	 * @param minimapY The coordinate on Y of the miniature in the window.
+	 * @return the image of the miniature (its upper left corner is drawn at minimapX, minimapY).
+	 */
+	private BufferedImage renderMinimap(float ratio, int minimapX, int minimapY)
+	{
+		int width = (int)(CAMERA_HEIGHT*ratio), height = (int)CAMERA_HEIGHT;
+		//Coordinates in the window of the upper left corner of the miniature, minus the coordinates of the image.
+		float offsetX = this.getWidth()-CAMERA_HEIGHT*ratio-minimapX, offsetY = this.getHeight()-CAMERA_HEIGHT-minimapY;
+		BufferedImage img;
+		if (this.getGraphicsConfiguration()==null)
+			img = new BufferedImage(width+1, height+1, BufferedImage.TYPE_INT_RGB);
+		else
+			img = this.getGraphicsConfiguration().createCompatibleImage(width+1, height+1, Transparency.OPAQUE);
+		Graphics2D g2d = img.createGraphics();
 		//Paint over the existing map.
 		g2d.setColor(Color.WHITE);
-		g2d.fillRect((int)(this.getWidth()-CAMERA_HEIGHT*ratio), (int)(this.getHeight()-CAMERA_HEIGHT), (int)(CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT));
+		g2d.fillRect(0, 0, width, height);
 		for (Displayable disp : list)
 		{
 			//Display only crossroads and roads.
@@ -126,20 +323,107 @@ public class GamePanel extends JPanel implements MouseMotionListener, MouseListe
 					g2d.setColor(Color.BLUE);
 				else
 					g2d.setColor(Color.BLACK);
-				g2d.fillOval((int)(CAMERA_HEIGHT*ratio/camera.getxMax()*disp.getCoordinates()[0]+this.getWidth()-CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT/camera.getxMax()*disp.getCoordinates()[1] + this.getHeight()-CAMERA_HEIGHT), 10, 10);
+				g2d.fillOval((int)(CAMERA_HEIGHT*ratio/camera.getxMax()*disp.getCoordinates()[0]+offsetX), (int)(CAMERA_HEIGHT/camera.getxMax()*disp.getCoordinates()[1]+offsetY), 10, 10);
 			}
 			else if (disp.getClass()==Road.class)
-				g2d.drawLine((int)(CAMERA_HEIGHT*ratio/camera.getxMax()*((Road)disp).getStartingPoint().x+this.getWidth()-CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT/camera.getxMax()*((Road)disp).getStartingPoint().y + this.getHeight()-CAMERA_HEIGHT), (int)(CAMERA_HEIGHT*ratio/camera.getxMax()*((Road)disp).getEndingPoint().x+this.getWidth()-CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT/camera.getxMax()*((Road)disp).getEndingPoint().y + this.getHeight()-CAMERA_HEIGHT));
+				g2d.drawLine((int)(CAMERA_HEIGHT*ratio/camera.getxMax()*((Road)disp).getStartingPoint().x+offsetX), (int)(CAMERA_HEIGHT/camera.getxMax()*((Road)disp).getStartingPoint().y+offsetY), (int)(CAMERA_HEIGHT*ratio/camera.getxMax()*((Road)disp).getEndingPoint().x+offsetX), (int)(CAMERA_HEIGHT/camera.getxMax()*((Road)disp).getEndingPoint().y+offsetY));
 			g2d.setColor(Color.BLACK);
 		}
 		//Draw a circumscribing rectangle for the miniature of the map.
 		g2d.setColor(Color.BLACK);
-		g2d.drawRect((int)(this.getWidth()-CAMERA_HEIGHT*ratio), (int)(this.getHeight()-CAMERA_HEIGHT), (int)(CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT));
-		//Print counters of crashed vehicles and vehicles which reached their destination or a dead-end.
-		g2d.drawString("Deaths :"+deaths+" Reached :"+reached, this.getWidth()-CAMERA_HEIGHT*ratio, this.getHeight()-205);
-		//Draw a circumscribing rectangle of the map currently shown in the miniature of the whole map.
-		g2d.setColor(Color.PINK);
-		g2d.drawRect((int)(CAMERA_HEIGHT*ratio/camera.getxMax()*camera.x+this.getWidth()-CAMERA_HEIGHT*ratio), (int)(CAMERA_HEIGHT/camera.getxMax()*camera.y + this.getHeight()-CAMERA_HEIGHT), (int)(CAMERA_HEIGHT*ratio/camera.getxMax()*camera.width), (int)(CAMERA_HEIGHT/camera.getxMax()*camera.height));
+		g2d.drawRect(0, 0, width, height);
+		g2d.dispose();
+		return img;
+	}
+	/**
+	 * Draw the density of vehicles over the miniature of the map: the miniature is cut into square cells, the more vehicles in a cell, the redder.
+	 * @param g2d The graphics of the window.
+	 * @param snapshot The snapshot of the vehicles.
+	 * @param ratio The ratio between the width and the height of the window.
+	 * @param minimapX The coordinate on X of the miniature in the window.
+	 * @param minimapY The coordinate on Y of the miniature in the window.
+	 */
+	private void drawDensity(Graphics2D g2d, RenderSnapshot snapshot, float ratio, int minimapX, int minimapY)
+	{
+		int columns = (int)(CAMERA_HEIGHT*ratio)/DENSITY_CELL+1, rows = (int)CAMERA_HEIGHT/DENSITY_CELL+1, max=0, i, j;
+		if (density.length<columns*rows)
+			density = new int[columns*rows];
+		else
+			Arrays.fill(density, 0, columns*rows, 0);
+		//Count the vehicles in each cell (with the same scale as the crossroads of the miniature).
+		for (int k=snapshot.getNbTrafficLights(); k<snapshot.size(); ++k)
+		{
+			i = (int)(CAMERA_HEIGHT*ratio/camera.getxMax()*snapshot.getX(k))/DENSITY_CELL;
+			j = (int)(CAMERA_HEIGHT/camera.getxMax()*snapshot.getY(k))/DENSITY_CELL;
+			if (i>=0 && i<columns && j>=0 && j<rows)
+				max = Math.max(max, ++density[j*columns+i]);
+		}
+		for (j=0; j<rows; ++j)
+			for (i=0; i<columns; ++i)
+				if (density[j*columns+i]>0)
+				{
+					g2d.setColor(DENSITY_COLORS[(density[j*columns+i]*(DENSITY_COLORS.length-1))/max]);
+					g2d.fillRect(minimapX+i*DENSITY_CELL, minimapY+j*DENSITY_CELL, DENSITY_CELL, DENSITY_CELL);
+				}
+	}
+	/**
+	 * Set whether the density of vehicles is displayed over the miniature of the map.
+	 * @param showDensity Whether the density of vehicles is displayed over the miniature of the map.
+	 */
+	public void setShowDensity(boolean showDensity)
+	{
+		this.showDensity = showDensity;
+	}
+	/**
+	 * Return whether the density of vehicles is displayed over the miniature of the map.
+	 * @return whether the density of vehicles is displayed over the miniature of the map.
+	 */
+	public boolean isShowDensity()
+	{
+		return showDensity;
+	}
+	/**
+	 * Set whether the vehicles are interpolated between their two last published states.
+	 * @param interpolation Whether the vehicles are interpolated between the ticks.
+	 */
+	public void setInterpolation(boolean interpolation)
+	{
+		this.interpolation = interpolation;
+	}
+	/**
+	 * Return whether the vehicles are interpolated between their two last published states.
+	 * @return whether the vehicles are interpolated between the ticks.
+	 */
+	public boolean isInterpolation()
+	{
+		return interpolation;
+	}
+	/**
+	 * Return the number of vehicles and traffic lights (or cells of the density of vehicles) drawn during the last frame.
+	 * @return the number of vehicles and traffic lights (or cells of the density of vehicles) drawn during the last frame.
+	 */
+	public int getDrawnCount()
+	{
+		return drawn;
+	}
+	/**
+	 * Return the number of vehicles and traffic lights which were not drawn during the last frame because they were out of the camera.
+	 * @return the number of vehicles and traffic lights which were not drawn during the last frame because they were out of the camera.
+	 */
+	public int getCulledCount()
+	{
+		return culled;
+	}
+	/**
+	 * Make the game drawn actively by the render loop (thanks to drawGame()) instead of by Swing (thanks to paintComponent()), and print the counters
+	 * of frames of the active renderer and of the render loop.
+	 * @param renderer The active renderer drawing the game.
+	 * @param loop The render loop calling the active renderer.
+	 */
+	public void setActiveRendering(ActiveRenderer renderer, RenderLoop loop)
+	{
+		this.renderLoop = loop;
+		this.activeRenderer = renderer;
 	}
 	/**
 	 * Return the camera.
@@ -168,15 +452,30 @@ public class GamePanel extends JPanel implements MouseMotionListener, MouseListe
 	@Override
 	public void mouseMoved(MouseEvent e) {
 		//Update the camera if the cursor is on border of the window.
-		int VERTICAL_MARGIN = (int) (this.getHeight()*0.02), HORIZONTAL_MARGIN = (int) (this.getWidth()*0.02);
+		int VERTICAL_MARGIN = (int) (this.getHeight()*0.02), HORIZONTAL_MARGIN = (int) (this.getWidth()*0.02), step = 20*camera.getZoomFactor();
 		if (e.getX()<=HORIZONTAL_MARGIN)
-			camera.setX(camera.x-20);
+			camera.setX(camera.x-step);
 		else if (e.getX()>=this.getWidth()-HORIZONTAL_MARGIN)
-			camera.setX(camera.x+20);
+			camera.setX(camera.x+step);
 		if (e.getY()<=VERTICAL_MARGIN)
-			camera.setY(camera.y-20);
+			camera.setY(camera.y-step);
 		else if (e.getY()>=this.getHeight()-4*VERTICAL_MARGIN)
-			camera.setY(camera.y+20);
+			camera.setY(camera.y+step);
+	}
+	@Override
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		//Zoom out (wheel towards the user) or in around the cursor.
+		camera.setZoomLevel(camera.getZoomLevel()+e.getWheelRotation(), e.getX(), e.getY());
+	}
+	@Override
+	public void removeNotify() {
+		//The panel is not displayed anymore: stop rendering the tiles of the map (the static layer is created by the thread drawing the game).
+		synchronized (this)
+		{
+			if (staticLayer!=null)
+				staticLayer.dispose();
+		}
+		super.removeNotify();
 	}
 	@Override
 	public void mouseClicked(MouseEvent arg0) {}
@@ -192,13 +491,13 @@ public class GamePanel extends JPanel implements MouseMotionListener, MouseListe
 		//TODO Currently a bugged version
 		if (e.getX()>=this.getWidth()-(200*ratio) && e.getY()>=this.getHeight()-200)
 		{
-			float x = ((e.getX()-camera.width+200.f*ratio)*camera.getxMax()/200.f/ratio)+50, y=((e.getY()-camera.height+200)*camera.getyMax()/200.f)+300;
+			float x = ((e.getX()-camera.getScreenWidth()+200.f*ratio)*camera.getxMax()/200.f/ratio)+50, y=((e.getY()-camera.getScreenHeight()+200)*camera.getyMax()/200.f)+300;
 			camera.setX((int)x);
 			camera.setY((int)y);
 			return;
 		}
 		//Retrieve the clicked vehicle (if there exists) or perform action on click (switch traffic lights).
-		Point pt =new Point(e.getX()+camera.x, e.getY()+camera.y); 
+		Point pt =new Point(e.getX()*camera.getZoomFactor()+camera.x, e.getY()*camera.getZoomFactor()+camera.y); 
 		if ((c=frame.getScene().clickOn(pt))!=null)
 		{
 			//A vehicle is clicked, pause the game and display possibilities for the user.
@@ -15,6 +15,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import code.Difficulty;
 import code.SceneManager;
+import code.SimulationClock;
 
 /**
  * This class represents the first Frame displayed on game start. It displays for options: start a new game, load a save, edit settings and quit the game.
@@ -36,6 +37,8 @@ public class MainFrame extends JFrame implements ActionListener{
 	private QuitButton quitB;
 	private Difficulty difficulty;
 	private JFileChooser jc;	
+	//Number of logical ticks per second of the game (set by the system property simulation.tickRate).
+	private final int tickRate = Integer.getInteger("simulation.tickRate", SimulationClock.DEFAULT_TICK_RATE);
 	/**
 	 * Create a new MainFrame (the starting window) who is centered on the screen, not resizable, whose size is 1000*600px and whose title is "Menu principal".
 	 */
@@ -165,7 +168,7 @@ public class MainFrame extends JFrame implements ActionListener{
 				menuPan.setVisible(false);
 				try {
 					//Creation of a new game from the file
-					new GameFrame(new SceneManager(file, difficulty, false));					
+					new GameFrame(new SceneManager(file, difficulty, false, tickRate));					
 				} catch (InterruptedException e1) {
 					e1.printStackTrace();
 				}
@@ -182,7 +185,7 @@ public class MainFrame extends JFrame implements ActionListener{
 				menuPan.setVisible(false);
 				try {
 					//Creation of a new game from the file
-					new GameFrame(new SceneManager(file, difficulty, true), file);
+					new GameFrame(new SceneManager(file, difficulty, true, tickRate), file);
 				} catch (InterruptedException e1) {
 					e1.printStackTrace();
 				}
@@ -0,0 +1,109 @@
+package gui.frame;
+
+import java.awt.Component;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is the loop refreshing the display of the game, independently of the simulation. At a capped frame rate, it either asks for a repaint of
+ * its component (passive rendering) or draws the game itself thanks to an ActiveRenderer (active rendering). The last state published by the game is
+ * drawn. The simulation never waits for the display: when the machine is too slow, frames are dropped (Swing merges the pending repaints and the loop
+ * does not try to catch the late frames up), never ticks.
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class RenderLoop extends Thread {
+	//Default maximum number of frames per second.
+	public static final int DEFAULT_FPS = 60;
+	private final Component component;
+	private final ActiveRenderer renderer;
+	private final long frameNanos;
+	private volatile boolean stopped=false;
+	//Number of frames asked for and of frames dropped because the loop was late.
+	private volatile long frames=0, dropped=0;
+	/**
+	 * Create a new render loop (not started) refreshing the component passed by parameter at most fps times per second.
+	 * @param component The component to be repainted.
+	 * @param fps The maximum number of frames per second.
+	 */
+	public RenderLoop(Component component, int fps)
+	{
+		this(component, null, fps);
+	}
+	/**
+	 * Create a new render loop (not started) drawing the game thanks to the active renderer passed by parameter at most fps times per second.
+	 * @param renderer The active renderer.
+	 * @param fps The maximum number of frames per second.
+	 */
+	public RenderLoop(ActiveRenderer renderer, int fps)
+	{
+		this(null, renderer, fps);
+	}
+	/**
+	 * Create a new render loop (not started) refreshing either the component or the active renderer passed by parameter.
+	 * @param component The component to be repainted (null if the rendering is active).
+	 * @param renderer The active renderer (null if the rendering is passive).
+	 * @param fps The maximum number of frames per second.
+	 */
+	private RenderLoop(Component component, ActiveRenderer renderer, int fps)
+	{
+		super("RenderLoop");
+		if (fps<=0)
+			throw new IllegalArgumentException("The frame rate has to be positive.");
+		this.component = component;
+		this.renderer = renderer;
+		this.frameNanos = 1000000000L/fps;
+		//The loop must not prevent the program from exiting.
+		this.setDaemon(true);
+	}
+	@Override
+	public void run()
+	{
+		long next = System.nanoTime(), now;
+		while (!stopped)
+		{
+			if (renderer!=null)
+				renderer.render();
+			else
+				component.repaint();
+			++frames;
+			next += frameNanos;
+			now = System.nanoTime();
+			if (now-next>=frameNanos)
+			{
+				//Too late: drop the missed frames instead of repainting in a row.
+				dropped += (now-next)/frameNanos;
+				next = now;
+			}
+			while (!stopped && (now=System.nanoTime())<next)
+				LockSupport.parkNanos(this, next-now);
+		}
+	}
+	/**
+	 * Stop the loop definitely.
+	 */
+	public void setStop()
+	{
+		stopped = true;
+		LockSupport.unpark(this);
+	}
+	/**
+	 * Return the number of frames asked for since the loop was started.
+	 * @return the number of frames asked for since the loop was started.
+	 */
+	public long getFrames()
+	{
+		return frames;
+	}
+	/**
+	 * Return the number of frames dropped because the loop was late.
+	 * @return the number of frames dropped because the loop was late.
+	 */
+	public long getDroppedFrames()
+	{
+		return dropped;
+	}
+}
@@ -0,0 +1,324 @@
+package gui.frame;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * This class represents what the view needs to draw the moving actors of the game (traffic lights and vehicles) at a given tick: for each actor, its
+ * identifier, its image, the coordinates of its RELATIVE upper left corner and its angle, and the same state at the previous published tick (the view
+ * interpolates between both states while waiting for the next tick). It also contains the number of vehicles in each cell of a grid covering the map
+ * and the counters of the game.<br>
+ * A snapshot is filled by the thread of the game, then published thanks to a RenderSnapshotBuffer: once published, it is only read by the view until
+ * it is given back to the game to be filled again. Its arrays are reused from a tick to another.
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class RenderSnapshot {
+	private int size=0, nbTrafficLights=0;
+	private int[] ids = new int[16];
+	private BufferedImage[] images = new BufferedImage[16];
+	private float[] xs = new float[16], ys = new float[16];
+	private double[] angles = new double[16];
+	//State of the actors at the previous published tick.
+	private float[] previousXs = new float[16], previousYs = new float[16];
+	private double[] previousAngles = new double[16];
+	//Distance above which an actor is not interpolated (it was moved at once, for example to an other road).
+	public static final float MAX_INTERPOLATED_DISTANCE = 45;
+	private static final double TWO_PI = 2*Math.PI;
+	//Number of vehicles in each cell of the map (row by row), size of the grid and largest number of vehicles in a cell.
+	private int[] density = new int[0];
+	private int densityColumns=0, densityRows=0, densityCellSize=1, densityMax=0;
+	private int deaths=0, reached=0;
+	//Number of the tick of the snapshot (0 if it was never filled).
+	private long tick=0;
+	//Duration of a tick and time when the snapshot was published (in ns).
+	private long tickNanos=1, publishedAt=0;
+	/**
+	 * Empty the snapshot before filling it for the tick passed by parameter.
+	 * @param tick The number of the tick.
+	 * @param tickNanos The duration of a tick (in ns).
+	 * @param deaths The number of crashed vehicles.
+	 * @param reached The number of vehicles which reached their destination or a dead-end.
+	 */
+	public void clear(long tick, long tickNanos, int deaths, int reached)
+	{
+		this.tick = tick;
+		this.tickNanos = tickNanos;
+		this.deaths = deaths;
+		this.reached = reached;
+		this.size = 0;
+		this.nbTrafficLights = 0;
+	}
+	/**
+	 * Add a traffic lights to the snapshot. All traffic lights have to be added before the vehicles.
+	 * @param id The identifier of the traffic lights.
+	 * @param disp The traffic lights.
+	 */
+	public void addTrafficLights(int id, Displayable disp)
+	{
+		add(id, disp);
+		++nbTrafficLights;
+	}
+	/**
+	 * Add a vehicle which was not published before to the snapshot (it is not interpolated).
+	 * @param id The identifier of the vehicle.
+	 * @param disp The vehicle.
+	 */
+	public void addVehicle(int id, Displayable disp)
+	{
+		add(id, disp);
+	}
+	/**
+	 * Add a vehicle to the snapshot with its state at the previous published tick. The vehicle is not interpolated if it was moved too far.
+	 * @param id The identifier of the vehicle.
+	 * @param disp The vehicle.
+	 * @param previousX The coordinate on X of the vehicle at the previous published tick.
+	 * @param previousY The coordinate on Y of the vehicle at the previous published tick.
+	 * @param previousAngle The angle of the vehicle at the previous published tick.
+	 */
+	public void addVehicle(int id, Displayable disp, float previousX, float previousY, double previousAngle)
+	{
+		add(id, disp);
+		int i = size-1;
+		if (Math.abs(xs[i]-previousX)>MAX_INTERPOLATED_DISTANCE || Math.abs(ys[i]-previousY)>MAX_INTERPOLATED_DISTANCE)
+			return;
+		previousXs[i] = previousX;
+		previousYs[i] = previousY;
+		previousAngles[i] = previousAngle;
+	}
+	/**
+	 * Add an actor to the snapshot, enlarging the arrays if needed. Its previous state is its current state.
+	 * @param id The identifier of the actor.
+	 * @param disp The actor.
+	 */
+	private void add(int id, Displayable disp)
+	{
+		if (size==ids.length)
+		{
+			int length = 2*size;
+			ids = Arrays.copyOf(ids, length);
+			images = Arrays.copyOf(images, length);
+			xs = Arrays.copyOf(xs, length);
+			ys = Arrays.copyOf(ys, length);
+			angles = Arrays.copyOf(angles, length);
+			previousXs = Arrays.copyOf(previousXs, length);
+			previousYs = Arrays.copyOf(previousYs, length);
+			previousAngles = Arrays.copyOf(previousAngles, length);
+		}
+		ids[size] = id;
+		images[size] = disp.getImage();
+		xs[size] = disp.getCoordinates()[0];
+		ys[size] = disp.getCoordinates()[1];
+		angles[size] = disp.getAngle();
+		previousXs[size] = xs[size];
+		previousYs[size] = ys[size];
+		previousAngles[size] = angles[size];
+		++size;
+	}
+	/**
+	 * Return the number of actors in the snapshot.
+	 * @return the number of actors in the snapshot.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	/**
+	 * Return the number of traffic lights in the snapshot (they are the first actors, followed by the vehicles).
+	 * @return the number of traffic lights in the snapshot.
+	 */
+	public int getNbTrafficLights()
+	{
+		return nbTrafficLights;
+	}
+	/**
+	 * Return the identifier of the i-th actor.
+	 * @param i The index of the actor.
+	 * @return the identifier of the i-th actor.
+	 */
+	public int getId(int i)
+	{
+		return ids[i];
+	}
+	/**
+	 * Return the image of the i-th actor.
+	 * @param i The index of the actor.
+	 * @return the image of the i-th actor.
+	 */
+	public BufferedImage getImage(int i)
+	{
+		return images[i];
+	}
+	/**
+	 * Return the coordinate on X of the RELATIVE upper left corner of the i-th actor.
+	 * @param i The index of the actor.
+	 * @return the coordinate on X of the RELATIVE upper left corner of the i-th actor.
+	 */
+	public float getX(int i)
+	{
+		return xs[i];
+	}
+	/**
+	 * Return the coordinate on Y of the RELATIVE upper left corner of the i-th actor.
+	 * @param i The index of the actor.
+	 * @return the coordinate on Y of the RELATIVE upper left corner of the i-th actor.
+	 */
+	public float getY(int i)
+	{
+		return ys[i];
+	}
+	/**
+	 * Return the angle of the i-th actor.
+	 * @param i The index of the actor.
+	 * @return the angle of the i-th actor.
+	 */
+	public double getAngle(int i)
+	{
+		return angles[i];
+	}
+	/**
+	 * Copy the number of vehicles in each cell of the map.
+	 * @param counts The number of vehicles in each cell, row by row.
+	 * @param columns The number of columns of the grid.
+	 * @param rows The number of rows of the grid.
+	 * @param cellSize The size of a cell (in pixels of the map).
+	 */
+	public void setDensity(int[] counts, int columns, int rows, int cellSize)
+	{
+		int size = columns*rows, max=0;
+		if (density.length<size)
+			density = new int[size];
+		for (int i=0; i<size; ++i)
+		{
+			density[i] = counts[i];
+			max = Math.max(max, counts[i]);
+		}
+		densityColumns = columns;
+		densityRows = rows;
+		densityCellSize = cellSize;
+		densityMax = max;
+	}
+	/**
+	 * Return the number of columns of the grid of the density of vehicles.
+	 * @return the number of columns of the grid of the density of vehicles.
+	 */
+	public int getDensityColumns()
+	{
+		return densityColumns;
+	}
+	/**
+	 * Return the number of rows of the grid of the density of vehicles.
+	 * @return the number of rows of the grid of the density of vehicles.
+	 */
+	public int getDensityRows()
+	{
+		return densityRows;
+	}
+	/**
+	 * Return the size of a cell of the grid of the density of vehicles.
+	 * @return the size of a cell of the grid of the density of vehicles (in pixels of the map).
+	 */
+	public int getDensityCellSize()
+	{
+		return densityCellSize;
+	}
+	/**
+	 * Return the number of vehicles in a cell of the map.
+	 * @param i The column of the cell.
+	 * @param j The row of the cell.
+	 * @return the number of vehicles in the cell.
+	 */
+	public int getDensity(int i, int j)
+	{
+		return density[j*densityColumns+i];
+	}
+	/**
+	 * Return the largest number of vehicles in a cell of the map.
+	 * @return the largest number of vehicles in a cell of the map.
+	 */
+	public int getDensityMax()
+	{
+		return densityMax;
+	}
+	/**
+	 * Return the progression between the previous published tick and the tick of the snapshot at the time passed by parameter.
+	 * @param now The time (in ns, as given by System.nanoTime()).
+	 * @return the progression (from 0, the previous state, to 1, the current state) at the time passed by parameter.
+	 */
+	public float getAlpha(long now)
+	{
+		float alpha = (now-publishedAt)/(float)tickNanos;
+		return (alpha<0)?0:((alpha>1)?1:alpha);
+	}
+	/**
+	 * Return the coordinate on X of the RELATIVE upper left corner of the i-th actor, interpolated between its previous and its current state.
+	 * @param i The index of the actor.
+	 * @param alpha The progression between the previous (0) and the current (1) state.
+	 * @return the interpolated coordinate on X of the RELATIVE upper left corner of the i-th actor.
+	 */
+	public float getX(int i, float alpha)
+	{
+		return previousXs[i]+(xs[i]-previousXs[i])*alpha;
+	}
+	/**
+	 * Return the coordinate on Y of the RELATIVE upper left corner of the i-th actor, interpolated between its previous and its current state.
+	 * @param i The index of the actor.
+	 * @param alpha The progression between the previous (0) and the current (1) state.
+	 * @return the interpolated coordinate on Y of the RELATIVE upper left corner of the i-th actor.
+	 */
+	public float getY(int i, float alpha)
+	{
+		return previousYs[i]+(ys[i]-previousYs[i])*alpha;
+	}
+	/**
+	 * Return the angle of the i-th actor, interpolated between its previous and its current state by the shortest way.
+	 * @param i The index of the actor.
+	 * @param alpha The progression between the previous (0) and the current (1) state.
+	 * @return the interpolated angle of the i-th actor.
+	 */
+	public double getAngle(int i, float alpha)
+	{
+		double delta = (angles[i]-previousAngles[i])%TWO_PI;
+		if (delta>Math.PI)
+			delta -= TWO_PI;
+		else if (delta<-Math.PI)
+			delta += TWO_PI;
+		return previousAngles[i]+delta*alpha;
+	}
+	/**
+	 * Set the time when the snapshot was published.
+	 * @param publishedAt The time (in ns, as given by System.nanoTime()).
+	 */
+	void setPublishedAt(long publishedAt)
+	{
+		this.publishedAt = publishedAt;
+	}
+	/**
+	 * Return the number of crashed vehicles.
+	 * @return the number of crashed vehicles.
+	 */
+	public int getDeaths()
+	{
+		return deaths;
+	}
+	/**
+	 * Return the number of vehicles which reached their destination or a dead-end.
+	 * @return the number of vehicles which reached their destination or a dead-end.
+	 */
+	public int getReached()
+	{
+		return reached;
+	}
+	/**
+	 * Return the number of the tick of the snapshot.
+	 * @return the number of the tick of the snapshot (0 if it was never filled).
+	 */
+	public long getTick()
+	{
+		return tick;
+	}
+}
@@ -0,0 +1,52 @@
+package gui.frame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class hands the snapshots of the game over from the thread of the game to the view without any lock. It is a triple buffer: the game fills
+ * its back snapshot then publishes it, the view reads its front snapshot, and the third one is the last published snapshot not yet taken by the view.
+ * Publishing and taking only swap a snapshot with the published one, so the game never waits for the view and a snapshot being read is never
+ * modified.<br>
+ * There must be only one thread publishing (the thread of the game) and only one thread taking (the thread painting the game).
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class RenderSnapshotBuffer {
+	//Bit of the state set when the published snapshot has not been taken yet.
+	private static final int FRESH = 4;
+	private final RenderSnapshot[] snapshots = {new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()};
+	//Index of the published snapshot (and FRESH if it has not been taken yet).
+	private final AtomicInteger state = new AtomicInteger(1);
+	//Index of the snapshot of the game and of the snapshot of the view.
+	private int back=0, front=2;
+	/**
+	 * Return the snapshot to be filled by the game (only called by the thread of the game).
+	 * @return the snapshot to be filled by the game.
+	 */
+	public RenderSnapshot getBack()
+	{
+		return snapshots[back];
+	}
+	/**
+	 * Publish the snapshot filled by the game (only called by the thread of the game). The game then fills another snapshot.
+	 */
+	public void publish()
+	{
+		snapshots[back].setPublishedAt(System.nanoTime());
+		back = state.getAndSet(back|FRESH)&~FRESH;
+	}
+	/**
+	 * Return the last published snapshot (only called by the thread painting the game). The snapshot is not modified until the next call.
+	 * @return the last published snapshot (empty if nothing was published).
+	 */
+	public RenderSnapshot take()
+	{
+		if ((state.get()&FRESH)!=0)
+			front = state.getAndSet(front)&~FRESH;
+		return snapshots[front];
+	}
+}
@@ -0,0 +1,158 @@
+package gui.frame;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class is an atlas of rotated images of the actors. The angle of an actor is quantized in a fixed number of steps and, for each image and each
+ * step, a rotated copy (compatible with the screen) is created the first time it is needed. Drawing an actor is then a simple copy of pixels instead
+ * of a rotation of its image at each frame.<br>
+ * As in the former rendering, an image is rotated around its upper left corner: a rotated copy comes with the offset of its upper left corner from
+ * the coordinates of the actor.<br>
+ * The atlas is not thread-safe: it has to be used only by the thread painting the game.
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class SpriteAtlas {
+	//Number of quantized angles for a whole turn (the error is at most half a degree).
+	public static final int ANGLE_STEPS = 360;
+	private static final double TWO_PI = 2*Math.PI;
+	//Rotated copies of each image (by quantized angle, created when needed).
+	private final Map<BufferedImage, Sprite[]> sprites = new IdentityHashMap<BufferedImage, Sprite[]>();
+	private final GraphicsConfiguration configuration;
+	/**
+	 * This class represents a rotated copy of an image and the offset of its upper left corner from the coordinates of the actor.
+	 *
+	 * @author NOVAK Johann
+	 * 		johann.novak@utbm.fr
+	 * @author SCHULZ Quentin
+	 * 		quentin.schulz@utbm.fr
+	 *
+	 * @version v0.1
+	 */
+	public static class Sprite {
+		private final BufferedImage image;
+		private final int offsetX, offsetY;
+
+		private Sprite(BufferedImage image, int offsetX, int offsetY)
+		{
+			this.image = image;
+			this.offsetX = offsetX;
+			this.offsetY = offsetY;
+		}
+		/**
+		 * Return the rotated image.
+		 * @return the rotated image.
+		 */
+		public BufferedImage getImage()
+		{
+			return image;
+		}
+		/**
+		 * Return the offset on X of the upper left corner of the rotated image from the coordinates of the actor.
+		 * @return the offset on X of the upper left corner of the rotated image from the coordinates of the actor.
+		 */
+		public int getOffsetX()
+		{
+			return offsetX;
+		}
+		/**
+		 * Return the offset on Y of the upper left corner of the rotated image from the coordinates of the actor.
+		 * @return the offset on Y of the upper left corner of the rotated image from the coordinates of the actor.
+		 */
+		public int getOffsetY()
+		{
+			return offsetY;
+		}
+	}
+	/**
+	 * Create a new empty atlas, whose images are compatible with the default screen (if there is one).
+	 */
+	public SpriteAtlas()
+	{
+		if (GraphicsEnvironment.isHeadless())
+			configuration = null;
+		else
+			configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+	}
+	/**
+	 * Return the quantized step of the angle passed by parameter.
+	 * @param angle The angle (in radians).
+	 * @return the quantized step of the angle passed by parameter (between 0 and ANGLE_STEPS-1).
+	 */
+	public static int toStep(double angle)
+	{
+		int step = (int)Math.round(angle/TWO_PI*ANGLE_STEPS)%ANGLE_STEPS;
+		return (step<0)?step+ANGLE_STEPS:step;
+	}
+	/**
+	 * Return the copy of the image passed by parameter rotated of the angle passed by parameter (quantized).
+	 * @param img The image.
+	 * @param angle The angle (in radians).
+	 * @return the rotated copy of the image.
+	 */
+	public Sprite get(BufferedImage img, double angle)
+	{
+		Sprite[] rotations = sprites.get(img);
+		if (rotations==null)
+		{
+			rotations = new Sprite[ANGLE_STEPS];
+			sprites.put(img, rotations);
+		}
+		int step = toStep(angle);
+		if (rotations[step]==null)
+			rotations[step] = rotate(img, step*TWO_PI/ANGLE_STEPS);
+		return rotations[step];
+	}
+	/**
+	 * Return the number of rotated copies in the atlas.
+	 * @return the number of rotated copies in the atlas.
+	 */
+	public int size()
+	{
+		int size=0;
+		for (Sprite[] rotations : sprites.values())
+			for (Sprite s : rotations)
+				if (s!=null)
+					++size;
+		return size;
+	}
+	/**
+	 * Create a copy of the image passed by parameter rotated around its upper left corner.
+	 * @param img The image.
+	 * @param angle The angle (in radians).
+	 * @return the rotated copy of the image.
+	 */
+	private Sprite rotate(BufferedImage img, double angle)
+	{
+		AffineTransform rotation = AffineTransform.getRotateInstance(angle);
+		Rectangle2D bounds = rotation.createTransformedShape(new Rectangle2D.Float(0, 0, img.getWidth(), img.getHeight())).getBounds2D();
+		int offsetX = (int)Math.floor(bounds.getMinX()), offsetY = (int)Math.floor(bounds.getMinY());
+		int width = (int)Math.ceil(bounds.getMaxX())-offsetX, height = (int)Math.ceil(bounds.getMaxY())-offsetY;
+		BufferedImage rotated;
+		if (configuration==null)
+			rotated = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		else
+			rotated = configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		Graphics2D g = rotated.createGraphics();
+		//Same quality as the former rotation at each frame.
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.translate(-offsetX, -offsetY);
+		g.rotate(angle);
+		g.drawImage(img, 0, 0, null);
+		g.dispose();
+		return new Sprite(rotated, offsetX, offsetY);
+	}
+}
@@ -0,0 +1,99 @@
+package gui.frame;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+/**
+ * This class is the registry of all images of the actors in the game. All images of the sprites directory are read once (when the class is loaded),
+ * converted to images compatible with the screen (if there is one) and shared by all actors: an image is never modified once in the registry.
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public final class SpriteRegistry {
+	//Directory containing all images of the actors.
+	public static final String SPRITES_DIRECTORY = "./images/sprites/";
+	//Images of the registry, by path.
+	private static final Map<String, BufferedImage> SPRITES = preload();
+
+	private SpriteRegistry(){}
+	/**
+	 * Read all images of the sprites directory. Each image is stored with the path used by the actors ("./images/sprites/[name]") and its
+	 * normalized path.
+	 * @return the map (which cannot be modified) of all images by path.
+	 */
+	private static Map<String, BufferedImage> preload()
+	{
+		Map<String, BufferedImage> sprites = new HashMap<String, BufferedImage>();
+		File[] files = new File(SPRITES_DIRECTORY).listFiles();
+		if (files!=null)
+			for (File f : files)
+			{
+				if (!f.getName().endsWith(".png"))
+					continue;
+				BufferedImage img = read(f);
+				if (img==null)
+					continue;
+				sprites.put(SPRITES_DIRECTORY+f.getName(), img);
+				sprites.put(normalize(f.getPath()), img);
+			}
+		return Collections.unmodifiableMap(sprites);
+	}
+	/**
+	 * Read the image of the file passed by parameter and convert it to an image compatible with the screen.
+	 * @param f The file of the image.
+	 * @return the image (null if it cannot be read).
+	 */
+	private static BufferedImage read(File f)
+	{
+		BufferedImage img;
+		try {
+			img = ImageIO.read(f);
+		} catch (IOException e) {
+			return null;
+		}
+		if (img==null || GraphicsEnvironment.isHeadless())
+			return img;
+		//Convert the image to the format of the screen (drawing it then needs no conversion).
+		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		BufferedImage compatible = gc.createCompatibleImage(img.getWidth(), img.getHeight(), img.getTransparency());
+		Graphics2D g = compatible.createGraphics();
+		g.drawImage(img, 0, 0, null);
+		g.dispose();
+		return compatible;
+	}
+	/**
+	 * Return the normalized form of the path passed by parameter.
+	 * @param path The path.
+	 * @return the normalized form of the path passed by parameter.
+	 */
+	private static String normalize(String path)
+	{
+		return new File(path).toPath().normalize().toString();
+	}
+	/**
+	 * Return the image whose path is passed by parameter. If the image is not in the sprites directory, it is read from the disk (and not kept).
+	 * @param path The path of the image.
+	 * @return the image (null if it cannot be found).
+	 */
+	public static BufferedImage get(String path)
+	{
+		BufferedImage img = SPRITES.get(path);
+		if (img==null)
+			img = SPRITES.get(normalize(path));
+		if (img==null)
+			img = read(new File(path));
+		return img;
+	}
+}
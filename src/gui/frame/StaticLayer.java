@@ -0,0 +1,277 @@
+package gui.frame;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import code.CrossRoad;
+import code.Road;
+
+/**
+ * This class represents the static part of the map: the background, the crossroads and the roads, which never change during a game. It is a pyramid
+ * of tiles: at the zoom level n, the map is cut into square tiles of TILE_SIZE pixels of the screen, each one covering TILE_SIZE*2^n pixels of the map.
+ * <br>
+ * A tile is rendered once into an opaque image compatible with the screen, by a background thread, the first time it is seen by the camera. Until
+ * then, the nearest tile of an upper level which is in the cache is drawn enlarged instead. The tiles of the level 0, and the tiles which have no
+ * ancestor in the cache, are rendered at once by the thread drawing the layer, so that the background is never drawn without the map. The rendered
+ * tiles are kept in a cache of bounded size, the least recently drawn tiles being removed first.<br>
+ * The drawing is not thread-safe: it has to be done only by the thread painting the game.
+ * @author NOVAK Johann
+ * 		johann.novak@utbm.fr
+ * @author SCHULZ Quentin
+ * 		quentin.schulz@utbm.fr
+ *
+ * @version v0.1
+ */
+public class StaticLayer {
+	//Size of a tile (in pixels of the screen).
+	public static final int TILE_SIZE = 256;
+	//Maximum number of rendered tiles kept in the cache.
+	public static final int MAX_CACHED_TILES = 128;
+	//Static actors in the order they are drawn, and their circumscribing rectangles.
+	private final List<Displayable> statics = new ArrayList<Displayable>();
+	private final List<Rectangle> bounds = new ArrayList<Rectangle>();
+	private final Color background;
+	private final GraphicsConfiguration configuration;
+	//Size of the map.
+	private final int width, height;
+	//Rendered tiles by key, in the order they were drawn (the least recently drawn first).
+	private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest)
+		{
+			return size()>MAX_CACHED_TILES;
+		}
+	};
+	//Tiles rendered by the background thread but not yet in the cache, and keys of the tiles being rendered.
+	private final Map<Long, BufferedImage> rendered = new ConcurrentHashMap<Long, BufferedImage>();
+	private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "StaticLayer");
+			//The rendering of the tiles must not prevent the program from exiting.
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	/**
+	 * Create the static layer of the map from the actors passed by parameter (only crossroads and roads are kept).
+	 * @param disps The actors of the game.
+	 * @param width The width of the map.
+	 * @param height The height of the map.
+	 * @param background The color of the background.
+	 */
+	public StaticLayer(List<Displayable> disps, int width, int height, Color background)
+	{
+		//Crossroads are drawn first, roads over them.
+		for (Displayable disp : disps)
+			if (disp.getClass()==CrossRoad.class)
+				statics.add(disp);
+		for (Displayable disp : disps)
+			if (disp.getClass()==Road.class)
+				statics.add(disp);
+		//The rectangles are computed by this thread: the actors are then only read by the background thread.
+		for (Displayable disp : statics)
+		{
+			if (disp.getClass()==Road.class)
+				bounds.add(disp.getBounds());
+			else if (disp.getImage()!=null)
+			{
+				//The image is rotated around its upper left corner: whatever its angle, it is in the square of half side its diagonal.
+				int radius = (int)Math.ceil(Math.hypot(disp.getImage().getWidth(), disp.getImage().getHeight()));
+				bounds.add(new Rectangle((int)disp.getCoordinates()[0]-radius, (int)disp.getCoordinates()[1]-radius, 2*radius, 2*radius));
+			}
+			else
+				bounds.add(new Rectangle());
+		}
+		this.width = width;
+		this.height = height;
+		this.background = background;
+		if (GraphicsEnvironment.isHeadless())
+			configuration = null;
+		else
+			configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+	}
+	/**
+	 * Return whether the actor passed by parameter is in the static layer.
+	 * @param disp The actor.
+	 * @return whether the actor passed by parameter is in the static layer.
+	 */
+	public static boolean isStatic(Displayable disp)
+	{
+		return disp.getClass()==CrossRoad.class || disp.getClass()==Road.class;
+	}
+	/**
+	 * Return the key of a tile.
+	 * @param level The zoom level of the tile.
+	 * @param i The column of the tile.
+	 * @param j The row of the tile.
+	 * @return the key of the tile.
+	 */
+	private static long key(int level, int i, int j)
+	{
+		return ((long)level<<48)|((long)i<<24)|j;
+	}
+	/**
+	 * Draw the part of the static layer seen by the camera.
+	 * @param g The graphics where the layer is drawn (its origin being the upper left corner of the camera).
+	 * @param view The part of the map seen by the camera.
+	 * @param level The zoom level of the camera.
+	 * @return the number of tiles drawn.
+	 */
+	public int draw(Graphics2D g, Rectangle view, int level)
+	{
+		//Add the tiles rendered since the last frame to the cache.
+		for (Long key : rendered.keySet())
+		{
+			tiles.put(key, rendered.remove(key));
+			pending.remove(key);
+		}
+		int factor = 1<<level, tileMap = TILE_SIZE*factor, drawn=0;
+		//Coordinates of the camera on the screen at this zoom level.
+		int originX = Math.floorDiv(view.x, factor), originY = Math.floorDiv(view.y, factor);
+		int lastColumn = Math.min((width-1)/tileMap, (view.x+view.width-1)/tileMap), lastRow = Math.min((height-1)/tileMap, (view.y+view.height-1)/tileMap);
+		for (int i=Math.max(0, view.x/tileMap); i<=lastColumn; ++i)
+			for (int j=Math.max(0, view.y/tileMap); j<=lastRow; ++j)
+			{
+				BufferedImage tile = tiles.get(key(level, i, j));
+				if (tile==null && level>0 && drawAncestor(g, level, i, j, originX, originY))
+				{
+					//Meanwhile, a part of the tile of an upper level was drawn enlarged.
+					request(level, i, j);
+					++drawn;
+					continue;
+				}
+				if (tile==null)
+				{
+					//The tiles of the level 0 are never replaced by a blurred ancestor, nor any tile by the background: render it now.
+					tile = render(level, i, j);
+					tiles.put(key(level, i, j), tile);
+				}
+				g.drawImage(tile, i*TILE_SIZE-originX, j*TILE_SIZE-originY, null);
+				++drawn;
+			}
+		return drawn;
+	}
+	/**
+	 * Draw, instead of a tile which is not rendered yet, its part of the nearest tile of an upper level which is in the cache, enlarged.
+	 * @param g The graphics where the layer is drawn (its origin being the upper left corner of the camera).
+	 * @param level The zoom level of the tile.
+	 * @param i The column of the tile.
+	 * @param j The row of the tile.
+	 * @param originX The coordinate on X of the camera on the screen at this zoom level.
+	 * @param originY The coordinate on Y of the camera on the screen at this zoom level.
+	 * @return
+	 * <ul>
+	 * <li>true, if a tile of an upper level was drawn.
+	 * <li>false, if no tile of an upper level is in the cache.
+	 * </ul>
+	 */
+	private boolean drawAncestor(Graphics2D g, int level, int i, int j, int originX, int originY)
+	{
+		for (int up=1; level+up<=Camera.MAX_ZOOM_LEVEL; ++up)
+		{
+			BufferedImage ancestor = tiles.get(key(level+up, i>>up, j>>up));
+			if (ancestor==null)
+				continue;
+			//The tile covers a square of TILE_SIZE/2^up pixels of its ancestor.
+			int size = TILE_SIZE>>up, sx = (i&((1<<up)-1))*size, sy = (j&((1<<up)-1))*size, dx = i*TILE_SIZE-originX, dy = j*TILE_SIZE-originY;
+			g.drawImage(ancestor, dx, dy, dx+TILE_SIZE, dy+TILE_SIZE, sx, sy, sx+Math.max(1, size), sy+Math.max(1, size), null);
+			return true;
+		}
+		return false;
+	}
+	/**
+	 * Ask the background thread to render a tile (if it is not already being rendered).
+	 * @param level The zoom level of the tile.
+	 * @param i The column of the tile.
+	 * @param j The row of the tile.
+	 */
+	private void request(final int level, final int i, final int j)
+	{
+		final Long key = key(level, i, j);
+		if (!pending.add(key))
+			return;
+		executor.execute(new Runnable() {
+			@Override
+			public void run()
+			{
+				rendered.put(key, render(level, i, j));
+			}
+		});
+	}
+	/**
+	 * Stop the background thread (the tiles which are not rendered yet will never be).
+	 */
+	public void dispose()
+	{
+		executor.shutdownNow();
+	}
+	/**
+	 * Render a tile.
+	 * @param level The zoom level of the tile.
+	 * @param i The column of the tile.
+	 * @param j The row of the tile.
+	 * @return the rendered tile.
+	 */
+	private BufferedImage render(int level, int i, int j)
+	{
+		BufferedImage tile;
+		BufferedImage img;
+		Displayable disp;
+		int factor = 1<<level, x = i*TILE_SIZE*factor, y = j*TILE_SIZE*factor;
+		Rectangle area = new Rectangle(x, y, TILE_SIZE*factor, TILE_SIZE*factor);
+		if (configuration==null)
+			tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+		else
+			tile = configuration.createCompatibleImage(TILE_SIZE, TILE_SIZE, Transparency.OPAQUE);
+		Graphics2D g = tile.createGraphics();
+		g.setColor(background);
+		g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+		if (level>0)
+		{
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.scale(1./factor, 1./factor);
+		}
+		g.translate(-x, -y);
+		for (int k=0; k<statics.size(); ++k)
+		{
+			if (!area.intersects(bounds.get(k)))
+				continue;
+			disp = statics.get(k);
+			if (disp.getClass()==Road.class)
+			{
+				g.setColor(Color.GRAY);
+				g.fillPolygon(disp);
+			}
+			else
+			{
+				img = disp.getImage();
+				//The image is rotated around its upper left corner.
+				AffineTransform at = AffineTransform.getTranslateInstance((int)disp.getCoordinates()[0], (int)disp.getCoordinates()[1]);
+				at.rotate(disp.getAngle());
+				g.drawImage(img, at, null);
+			}
+		}
+		g.dispose();
+		return tile;
+	}
+}
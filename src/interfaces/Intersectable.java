@@ -17,8 +17,9 @@ import java.io.Serializable;
 public interface Intersectable extends Serializable {
 	/*Représente un objet qui puisse entrer en collision avec un objet de cette même classe*/
 	/**
-	 * Find if there is an intersection with an Intersectable object. There exists one if at least one of the points of the
-	 * current Intersectable object or the Intersectable object passed by parameter is contained in the polygon of the other.
+	 * Find if there is an intersection with an Intersectable object. There exists one if the polygons of the current Intersectable
+	 * object and of the Intersectable object passed by parameter overlap (or, for a polygon reduced to a point, if it is contained in
+	 * the polygon of the other).
 	 * @param inter The Intersectable object we want to know if it intersects the current Intersectable object.
 	 * 
 	 * @return
@@ -29,8 +30,26 @@ public interface Intersectable extends Serializable {
 	 */
 	public boolean intersectWith(Intersectable inter);
 	/**
-	 * Return the points of the circumscribing polygon.
+	 * Return the points of the circumscribing polygon. It creates new points at each call: use getNbPoints(), getPointX() and getPointY() when
+	 * testing collisions.
 	 * @return the points of the circumscribing polygon. 
 	 */
 	public Point2D.Float[] getPoints();
+	/**
+	 * Return the number of points of the circumscribing polygon.
+	 * @return the number of points of the circumscribing polygon.
+	 */
+	public int getNbPoints();
+	/**
+	 * Return the X coordinate of a point of the circumscribing polygon (without creating any object).
+	 * @param i The index of the point (between 0 and getNbPoints()-1).
+	 * @return the X coordinate of the point.
+	 */
+	public float getPointX(int i);
+	/**
+	 * Return the Y coordinate of a point of the circumscribing polygon (without creating any object).
+	 * @param i The index of the point (between 0 and getNbPoints()-1).
+	 * @return the Y coordinate of the point.
+	 */
+	public float getPointY(int i);
 }